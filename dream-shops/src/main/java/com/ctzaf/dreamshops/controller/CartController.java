@@ -1,11 +1,13 @@
 package com.ctzaf.dreamshops.controller;
 
+import com.ctzaf.dreamshops.dto.CartDto;
+import com.ctzaf.dreamshops.dto.CartTotalCheckDto;
 import com.ctzaf.dreamshops.exceptions.ResourceNotFoundException;
-import com.ctzaf.dreamshops.model.Cart;
 import com.ctzaf.dreamshops.response.ApiResponse;
 import com.ctzaf.dreamshops.service.cart.ICartService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
@@ -29,7 +31,7 @@ public class CartController {
     @GetMapping("/{cartId}/my-cart")
     public ResponseEntity<ApiResponse> getCart(@PathVariable Long cartId) {
         try {
-            Cart cart = cartService.getCart(cartId);
+            CartDto cart = cartService.getCartDto(cartId);
             return ResponseEntity.ok(new ApiResponse("Success", cart));
         } catch (ResourceNotFoundException e) {
             return ResponseEntity.status(NOT_FOUND).body(new ApiResponse(e.getMessage(), null));
@@ -69,4 +71,24 @@ public class CartController {
             return ResponseEntity.status(NOT_FOUND).body(new ApiResponse(e.getMessage(), null));
         }
     }
+
+    /**
+     * Checks the stored total of the cart against the sum of its items.
+     *
+     * @param cartId the id of the cart to check
+     * @param repair whether a mismatching stored total should be corrected
+     * @return a response containing the stored and computed totals
+     * @throws ResourceNotFoundException if no cart is found with the given id
+     */
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/{cartId}/cart/total-price/verify")
+    public ResponseEntity<ApiResponse> verifyTotalAmount(@PathVariable Long cartId,
+                                                         @RequestParam(defaultValue = "false") boolean repair) {
+        try {
+            CartTotalCheckDto check = cartService.verifyTotalAmount(cartId, repair);
+            return ResponseEntity.ok(new ApiResponse(check.isConsistent() ? "Total Consistent" : "Total Mismatch", check));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(NOT_FOUND).body(new ApiResponse(e.getMessage(), null));
+        }
+    }
 }
@@ -2,8 +2,7 @@ package com.ctzaf.dreamshops.controller;
 
 
 import com.ctzaf.dreamshops.exceptions.ResourceNotFoundException;
-import com.ctzaf.dreamshops.model.Cart;
-import com.ctzaf.dreamshops.model.User;
+import com.ctzaf.dreamshops.request.CartItemOperationRequest;
 import com.ctzaf.dreamshops.response.ApiResponse;
 import com.ctzaf.dreamshops.service.cart.ICartItemService;
 import com.ctzaf.dreamshops.service.cart.ICartService;
@@ -13,6 +12,9 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
 import static org.springframework.http.HttpStatus.UNAUTHORIZED;
 
@@ -39,10 +41,8 @@ public class CartItemController {
                                                      @RequestParam Long productId,
                                                      @RequestParam Integer quantity) {
         try {
-            User user = userService.getAuthenticatedUser();
-            Cart cart = cartService.initializeNewCart(user);
-
-            cartItemService.addItemToCart(cart.getId(), productId, quantity);
+            cartService.updateCartOfUser(userService.getAuthenticatedUserId(),
+                    cartId -> cartItemService.addItemToCart(cartId, productId, quantity));
             return ResponseEntity.ok(new ApiResponse("Add Item Success", null));
         } catch (ResourceNotFoundException e) {
             return ResponseEntity.status(NOT_FOUND).body(new ApiResponse(e.getMessage(), null));
@@ -51,6 +51,30 @@ public class CartItemController {
         }
     }
 
+    /**
+     * Applies a list of add, update and remove operations to the cart of the authenticated user
+     * in one transaction. If the cart does not exist, a new cart is initialized. Either all
+     * operations are applied or none are.
+     *
+     * @param operations the operations to apply, in order
+     * @return a ResponseEntity with a status of 200 if all operations were applied, 404 if the cart,
+     * a product or an item could not be found, and 400 if an operation is incomplete
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<ApiResponse> applyOperations(@RequestBody List<CartItemOperationRequest> operations) {
+        try {
+            cartService.updateCartOfUser(userService.getAuthenticatedUserId(),
+                    cartId -> cartItemService.applyOperations(cartId, operations));
+            return ResponseEntity.ok(new ApiResponse("Batch Update Success", null));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(NOT_FOUND).body(new ApiResponse(e.getMessage(), null));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(BAD_REQUEST).body(new ApiResponse(e.getMessage(), null));
+        } catch (JwtException e) {
+            return ResponseEntity.status(UNAUTHORIZED).body(new ApiResponse(e.getMessage(), null));
+        }
+    }
+
 /**
  * Removes a specific item from the cart.
  *
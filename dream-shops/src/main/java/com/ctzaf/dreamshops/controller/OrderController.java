@@ -1,18 +1,28 @@
 package com.ctzaf.dreamshops.controller;
 
 import com.ctzaf.dreamshops.dto.OrderDto;
+import com.ctzaf.dreamshops.dto.OrderHandleDto;
+import com.ctzaf.dreamshops.dto.OrderHistoryPageDto;
+import com.ctzaf.dreamshops.exceptions.InsufficientInventoryException;
+import com.ctzaf.dreamshops.exceptions.InvalidIdempotencyKeyException;
 import com.ctzaf.dreamshops.exceptions.ResourceNotFoundException;
 import com.ctzaf.dreamshops.model.Order;
 import com.ctzaf.dreamshops.response.ApiResponse;
+import com.ctzaf.dreamshops.service.order.IAsyncOrderService;
+import com.ctzaf.dreamshops.service.order.IIdempotentOrderService;
 import com.ctzaf.dreamshops.service.order.IOrderService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
+import static org.springframework.http.HttpStatus.ACCEPTED;
+import static org.springframework.http.HttpStatus.CONFLICT;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.NOT_MODIFIED;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+import static org.springframework.http.HttpStatus.UNPROCESSABLE_ENTITY;
 
 @RequiredArgsConstructor
 @RestController
@@ -20,23 +30,57 @@ import static org.springframework.http.HttpStatus.NOT_FOUND;
 public class OrderController {
 
     private final IOrderService orderService;
+    private final IAsyncOrderService asyncOrderService;
+    private final IIdempotentOrderService idempotentOrderService;
 
     @PostMapping("/order")
-    public ResponseEntity<ApiResponse> createOrder(@RequestParam Long userId) {
+    public ResponseEntity<ApiResponse> createOrder(@RequestParam Long userId,
+                                                   @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         try {
-            Order order = orderService.placeOrder(userId);
+            Order order = idempotentOrderService.placeOrder(userId, idempotencyKey);
             OrderDto orderDto = orderService.convertToDto(order);
             return ResponseEntity.ok(new ApiResponse("Item Order Success!", orderDto));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(NOT_FOUND).body(new ApiResponse("Oops!", e.getMessage()));
+        } catch (InsufficientInventoryException e) {
+            return ResponseEntity.status(CONFLICT).body(new ApiResponse("Out of Stock", e.getMessage()));
+        } catch (InvalidIdempotencyKeyException e) {
+            return ResponseEntity.status(UNPROCESSABLE_ENTITY).body(new ApiResponse("Invalid Idempotency Key", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new ApiResponse("Error Occurred", e.getMessage()));
         }
     }
 
+    @PostMapping("/order/async")
+    public ResponseEntity<ApiResponse> createOrderAsync(@RequestParam Long userId) {
+        try {
+            OrderHandleDto handle = asyncOrderService.submitOrder(userId);
+            return ResponseEntity.status(ACCEPTED).body(new ApiResponse("Order Queued!", handle));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(SERVICE_UNAVAILABLE).body(new ApiResponse("Try Again Later", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/order/async/{handle}")
+    public ResponseEntity<ApiResponse> getOrderStatus(@PathVariable String handle) {
+        try {
+            OrderHandleDto status = asyncOrderService.getOrderStatus(handle);
+            return ResponseEntity.ok(new ApiResponse("Found!", status));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(NOT_FOUND).body(new ApiResponse("Oops!", e.getMessage()));
+        }
+    }
+
     @GetMapping("/{orderId}/order")
-    public ResponseEntity<ApiResponse> getOrderById(@PathVariable Long orderId) {
+    public ResponseEntity<ApiResponse> getOrderById(@PathVariable Long orderId,
+                                                    @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
+            String eTag = ETags.of(orderId, orderService.getOrderVersion(orderId));
+            if (ETags.matches(ifNoneMatch, eTag)) {
+                return ResponseEntity.status(NOT_MODIFIED).eTag(eTag).build();
+            }
             OrderDto order = orderService.getOrder(orderId);
-            return ResponseEntity.ok(new ApiResponse("Found!", order));
+            return ResponseEntity.ok().eTag(eTag).body(new ApiResponse("Found!", order));
         } catch (ResourceNotFoundException e) {
             return ResponseEntity.status(NOT_FOUND).body(new ApiResponse("Oops!", e.getMessage()));
         }
@@ -44,9 +88,11 @@ public class OrderController {
 
 
     @GetMapping("/{userId}/orders")
-    public ResponseEntity<ApiResponse> getUserOrders(@PathVariable Long userId) {
+    public ResponseEntity<ApiResponse> getUserOrders(@PathVariable Long userId,
+                                                     @RequestParam(defaultValue = "0") int page,
+                                                     @RequestParam(defaultValue = "20") int size) {
         try {
-            List<OrderDto> orders = orderService.getUserOrders(userId);
+            OrderHistoryPageDto orders = orderService.getUserOrders(userId, page, size);
             return ResponseEntity.ok(new ApiResponse("Found!", orders));
         } catch (ResourceNotFoundException e) {
             return ResponseEntity.status(NOT_FOUND).body(new ApiResponse("Oops!", e.getMessage()));
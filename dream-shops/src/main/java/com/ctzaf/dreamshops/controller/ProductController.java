@@ -1,18 +1,34 @@
 package com.ctzaf.dreamshops.controller;
 
+import com.ctzaf.dreamshops.dto.CacheStatsDto;
 import com.ctzaf.dreamshops.dto.ProductDto;
+import com.ctzaf.dreamshops.dto.ProductImportResultDto;
+import com.ctzaf.dreamshops.dto.SuggestionDto;
+import com.ctzaf.dreamshops.enums.ProductImportFormat;
+import com.ctzaf.dreamshops.dto.ProductPageDto;
 import com.ctzaf.dreamshops.exceptions.AlreadyExistsException;
 import com.ctzaf.dreamshops.exceptions.ResourceNotFoundException;
+import com.ctzaf.dreamshops.model.Category;
 import com.ctzaf.dreamshops.model.Product;
 import com.ctzaf.dreamshops.request.AddProductRequest;
+import com.ctzaf.dreamshops.request.ProductPageRequest;
 import com.ctzaf.dreamshops.request.ProductUpdateRequest;
 import com.ctzaf.dreamshops.response.ApiResponse;
+import com.ctzaf.dreamshops.service.product.IProductExportService;
+import com.ctzaf.dreamshops.service.product.IProductImportService;
 import com.ctzaf.dreamshops.service.product.IProductService;
+import com.ctzaf.dreamshops.service.search.IAutocompleteService;
+import com.ctzaf.dreamshops.service.search.IProductSearchService;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Window;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 import static org.springframework.http.HttpStatus.*;
@@ -22,25 +38,51 @@ import static org.springframework.http.HttpStatus.*;
 @RequestMapping("${api.prefix}/products")
 public class ProductController {
     private final IProductService productService;
+    private final IProductSearchService productSearchService;
+    private final IProductImportService productImportService;
+    private final IProductExportService productExportService;
+    private final IAutocompleteService autocompleteService;
 
 
     @GetMapping("/all")
-    public ResponseEntity<ApiResponse> getAllProducts() {
+    public ResponseEntity<ApiResponse> getAllProducts(ProductPageRequest page) {
         try {
-            List<Product> products = productService.getAllProducts();
-            List<ProductDto> convertedProducts = productService.getConvertedProducts(products);
+            Window<Product> products = productService.getAllProducts(page);
+            ProductPageDto convertedProducts = productService.getConvertedPage(products, page);
             return ResponseEntity.ok(new ApiResponse("Success!", convertedProducts));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(BAD_REQUEST).body(new ApiResponse(e.getMessage(), null));
         } catch (Exception e) {
             return ResponseEntity.status(INTERNAL_SERVER_ERROR).body(new ApiResponse(e.getMessage(), null));
         }
     }
 
+    /**
+     * Streams the whole catalog as newline delimited JSON, optionally gzipped,
+     * without building the full product list in memory.
+     */
+    @GetMapping("/export")
+    public void exportProducts(@RequestParam(defaultValue = "false") boolean gzip,
+                               HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        productExportService.exportCatalog(response.getOutputStream(), gzip);
+    }
+
     @GetMapping("product/{productId}/product")
-    public ResponseEntity<ApiResponse> getProductById(@PathVariable Long productId) {
+    public ResponseEntity<ApiResponse> getProductById(@PathVariable Long productId,
+                                                      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
             Product product = productService.getProductById(productId);
+            Category category = product.getCategory();
+            String eTag = ETags.of(product.getId(), product.getVersion(), category == null ? 0 : category.getVersion());
+            if (ETags.matches(ifNoneMatch, eTag)) {
+                return ResponseEntity.status(NOT_MODIFIED).eTag(eTag).build();
+            }
             ProductDto productDto = productService.convertToDto(product);
-            return ResponseEntity.ok(new ApiResponse("Success!", productDto));
+            return ResponseEntity.ok().eTag(eTag).body(new ApiResponse("Success!", productDto));
         } catch (ResourceNotFoundException e) {
             return ResponseEntity.status(NOT_FOUND).body(new ApiResponse(e.getMessage(), null));
         }
@@ -58,6 +100,18 @@ public class ProductController {
         }
     }
 
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<ApiResponse> importProducts(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                      InputStream body) {
+        try {
+            ProductImportResultDto result = productImportService.importProducts(body, ProductImportFormat.fromContentType(contentType));
+            return ResponseEntity.ok(new ApiResponse("Import Products Done!", result));
+        } catch (Exception e) {
+            return ResponseEntity.status(INTERNAL_SERVER_ERROR).body(new ApiResponse(e.getMessage(), null));
+        }
+    }
+
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("/product/{productId}/update")
     public ResponseEntity<ApiResponse> updateProduct(@RequestBody ProductUpdateRequest request, @PathVariable Long productId) {
@@ -82,75 +136,112 @@ public class ProductController {
     }
 
     @GetMapping("/products/by/brand-and-name")
-    public ResponseEntity<ApiResponse> getProductByBrandAndName(@RequestParam String brandName, @RequestParam String productName) {
+    public ResponseEntity<ApiResponse> getProductByBrandAndName(@RequestParam String brandName, @RequestParam String productName, ProductPageRequest page) {
         try {
-            List<Product> products = productService.getProductsByBrandAndName(brandName, productName);
+            Window<Product> products = productService.getProductsByBrandAndName(brandName, productName, page);
             if(products.isEmpty()) {
                 return ResponseEntity.status(NOT_FOUND).body(new ApiResponse("No product found!", null));
             }
-            List<ProductDto> convertedProducts = productService.getConvertedProducts(products);
+            ProductPageDto convertedProducts = productService.getConvertedPage(products, page);
             return ResponseEntity.ok(new ApiResponse("Found!", convertedProducts));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(BAD_REQUEST).body(new ApiResponse(e.getMessage(), null));
         } catch (Exception e) {
             return ResponseEntity.status(INTERNAL_SERVER_ERROR).body(new ApiResponse(e.getMessage(), null));
         }
     }
 
     @GetMapping("/products/by/category-and-brand")
-    public ResponseEntity<ApiResponse> getProductByCategoryAndBrand(@RequestParam String category, @RequestParam String brand) {
+    public ResponseEntity<ApiResponse> getProductByCategoryAndBrand(@RequestParam String category, @RequestParam String brand, ProductPageRequest page) {
         try {
-            List<Product> products = productService.getProductsByCategoryAndBrand(category, brand);
+            Window<Product> products = productService.getProductsByCategoryAndBrand(category, brand, page);
             if(products.isEmpty()) {
                 return ResponseEntity.status(NOT_FOUND).body(new ApiResponse("No product found!", null));
             }
-            List<ProductDto> convertedProducts = productService.getConvertedProducts(products);
+            ProductPageDto convertedProducts = productService.getConvertedPage(products, page);
             return ResponseEntity.ok(new ApiResponse("Found!", convertedProducts));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(BAD_REQUEST).body(new ApiResponse(e.getMessage(), null));
         } catch (Exception e) {
             return ResponseEntity.status(INTERNAL_SERVER_ERROR).body(new ApiResponse("error", e.getMessage()));
         }
     }
 
     @GetMapping("/products/{name}/products")
-    public ResponseEntity<ApiResponse> getProductByName(@PathVariable String name) {
+    public ResponseEntity<ApiResponse> getProductByName(@PathVariable String name, ProductPageRequest page) {
         try {
-            List<Product> products = productService.getProductsByName(name);
+            Window<Product> products = productService.getProductsByName(name, page);
             if(products.isEmpty()) {
                 return ResponseEntity.status(NOT_FOUND).body(new ApiResponse("No product found!", null));
             }
-            List<ProductDto> convertedProducts = productService.getConvertedProducts(products);
+            ProductPageDto convertedProducts = productService.getConvertedPage(products, page);
             return ResponseEntity.ok(new ApiResponse("Found!", convertedProducts));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(BAD_REQUEST).body(new ApiResponse(e.getMessage(), null));
         } catch (Exception e) {
             return ResponseEntity.status(INTERNAL_SERVER_ERROR).body(new ApiResponse("error", e.getMessage()));
         }
     }
 
     @GetMapping("/product/by-brand")
-    public ResponseEntity<ApiResponse> findProductByBrand(@RequestParam String brand) {
+    public ResponseEntity<ApiResponse> findProductByBrand(@RequestParam String brand, ProductPageRequest page) {
         try {
-            List<Product> products = productService.getProductsByBrand(brand);
+            Window<Product> products = productService.getProductsByBrand(brand, page);
             if (products.isEmpty()) {
                 return ResponseEntity.status(NOT_FOUND).body(new ApiResponse("No products found ", null));
             }
-            List<ProductDto> convertedProducts = productService.getConvertedProducts(products);
+            ProductPageDto convertedProducts = productService.getConvertedPage(products, page);
             return  ResponseEntity.ok(new ApiResponse("success", convertedProducts));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(BAD_REQUEST).body(new ApiResponse(e.getMessage(), null));
         } catch (Exception e) {
             return ResponseEntity.ok(new ApiResponse(e.getMessage(), null));
         }
     }
 
     @GetMapping("/product/{category}/all/products")
-    public ResponseEntity<ApiResponse> findProductsByCategory(@PathVariable String category) {
+    public ResponseEntity<ApiResponse> findProductsByCategory(@PathVariable String category, ProductPageRequest page) {
         try {
-            List<Product> products = productService.getProductsByCategory(category);
+            Window<Product> products = productService.getProductsByCategory(category, page);
             if (products.isEmpty()) {
                 return ResponseEntity.status(NOT_FOUND).body(new ApiResponse("No products found ", null));
             }
-            List<ProductDto> convertedProducts = productService.getConvertedProducts(products);
+            ProductPageDto convertedProducts = productService.getConvertedPage(products, page);
             return ResponseEntity.ok(new ApiResponse("success", convertedProducts));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(BAD_REQUEST).body(new ApiResponse(e.getMessage(), null));
         } catch (Exception e) {
             return ResponseEntity.ok(new ApiResponse(e.getMessage(), null));
         }
     }
 
+    @GetMapping("/search")
+    public ResponseEntity<ApiResponse> searchProducts(@RequestParam String q, @RequestParam(defaultValue = "20") int limit) {
+        try {
+            List<Product> products = productSearchService.search(q, limit);
+            if (products.isEmpty()) {
+                return ResponseEntity.status(NOT_FOUND).body(new ApiResponse("No products found ", null));
+            }
+            List<ProductDto> convertedProducts = productService.getConvertedProducts(products);
+            return ResponseEntity.ok(new ApiResponse("Found!", convertedProducts));
+        } catch (Exception e) {
+            return ResponseEntity.status(INTERNAL_SERVER_ERROR).body(new ApiResponse("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/autocomplete")
+    public ResponseEntity<ApiResponse> autocomplete(@RequestParam String prefix, @RequestParam(defaultValue = "10") int limit) {
+        List<SuggestionDto> suggestions = autocompleteService.suggest(prefix, limit);
+        return ResponseEntity.ok(new ApiResponse("Suggestions", suggestions));
+    }
+
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/cache/stats")
+    public ResponseEntity<ApiResponse> getCacheStats() {
+        CacheStatsDto stats = productService.getCacheStats();
+        return ResponseEntity.ok(new ApiResponse("Product cache stats", stats));
+    }
+
     public ResponseEntity<ApiResponse> countProductsByBrandAndName(@RequestParam String brand, @RequestParam String name) {
         try {
             var productCount = productService.countProductsByBrandAndName(brand, name);
@@ -0,0 +1,16 @@
+package com.ctzaf.dreamshops.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+@Data
+@AllArgsConstructor
+public class CartTotalCheckDto {
+    private Long cartId;
+    private BigDecimal storedTotal;
+    private BigDecimal computedTotal;
+    private boolean consistent;
+    private boolean repaired;
+}
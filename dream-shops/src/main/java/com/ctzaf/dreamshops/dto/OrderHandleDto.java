@@ -0,0 +1,14 @@
+package com.ctzaf.dreamshops.dto;
+
+import com.ctzaf.dreamshops.enums.OrderRequestStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class OrderHandleDto {
+    private String handle;
+    private OrderRequestStatus status;
+    private Long orderId;
+    private String error;
+}
@@ -0,0 +1,15 @@
+package com.ctzaf.dreamshops.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class OrderHistoryPageDto {
+    private List<OrderDto> orders;
+    private int page;
+    private int size;
+    private boolean hasNext;
+}
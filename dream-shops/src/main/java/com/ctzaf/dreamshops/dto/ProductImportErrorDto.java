@@ -0,0 +1,11 @@
+package com.ctzaf.dreamshops.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class ProductImportErrorDto {
+    private long line;
+    private String message;
+}
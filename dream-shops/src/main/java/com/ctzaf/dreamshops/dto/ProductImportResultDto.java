@@ -0,0 +1,13 @@
+package com.ctzaf.dreamshops.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class ProductImportResultDto {
+    private long imported;
+    private long failed;
+    private List<ProductImportErrorDto> errors = new ArrayList<>();
+}
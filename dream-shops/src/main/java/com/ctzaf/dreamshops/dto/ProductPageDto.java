@@ -0,0 +1,14 @@
+package com.ctzaf.dreamshops.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class ProductPageDto {
+    private List<ProductDto> products;
+    private String nextCursor;
+    private boolean hasNext;
+}
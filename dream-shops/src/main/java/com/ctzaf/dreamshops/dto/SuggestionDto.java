@@ -0,0 +1,12 @@
+package com.ctzaf.dreamshops.dto;
+
+import com.ctzaf.dreamshops.enums.SuggestionType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class SuggestionDto {
+    private String text;
+    private SuggestionType type;
+}
@@ -0,0 +1,7 @@
+package com.ctzaf.dreamshops.enums;
+
+public enum OrderRequestStatus {
+    QUEUED,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,37 @@
+package com.ctzaf.dreamshops.enums;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.function.Function;
+
+public enum ProductSort {
+    ID("id", Long::valueOf),
+    PRICE("price", BigDecimal::new),
+    NAME("name", Function.identity());
+
+    private final String property;
+    private final Function<String, ?> parser;
+
+    ProductSort(String property, Function<String, ?> parser) {
+        this.property = property;
+        this.parser = parser;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    /**
+     * Parses the textual form of a sort key value back into the type of the sorted property.
+     */
+    public Object parseKey(String value) {
+        return parser.apply(value);
+    }
+
+    public static ProductSort fromName(String name) {
+        return Arrays.stream(values())
+                .filter(sort -> sort.property.equalsIgnoreCase(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unsupported sort: " + name));
+    }
+}
@@ -0,0 +1,6 @@
+package com.ctzaf.dreamshops.enums;
+
+public enum SuggestionType {
+    NAME,
+    BRAND
+}
@@ -0,0 +1,7 @@
+package com.ctzaf.dreamshops.exceptions;
+
+public class InsufficientInventoryException extends RuntimeException {
+    public InsufficientInventoryException(String message) {
+        super(message);
+    }
+}
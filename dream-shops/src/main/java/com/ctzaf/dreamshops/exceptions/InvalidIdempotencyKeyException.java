@@ -0,0 +1,7 @@
+package com.ctzaf.dreamshops.exceptions;
+
+public class InvalidIdempotencyKeyException extends RuntimeException {
+    public InvalidIdempotencyKeyException(String message) {
+        super(message);
+    }
+}
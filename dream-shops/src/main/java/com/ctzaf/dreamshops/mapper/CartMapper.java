@@ -0,0 +1,18 @@
+package com.ctzaf.dreamshops.mapper;
+
+import com.ctzaf.dreamshops.dto.CartDto;
+import com.ctzaf.dreamshops.dto.CartItemDto;
+import com.ctzaf.dreamshops.model.Cart;
+import com.ctzaf.dreamshops.model.CartItem;
+import org.mapstruct.InjectionStrategy;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(componentModel = "spring", uses = ProductMapper.class, injectionStrategy = InjectionStrategy.CONSTRUCTOR)
+public interface CartMapper {
+    @Mapping(target = "cartId", source = "id")
+    CartDto toDto(Cart cart);
+
+    @Mapping(target = "itemId", source = "id")
+    CartItemDto toDto(CartItem cartItem);
+}
@@ -0,0 +1,10 @@
+package com.ctzaf.dreamshops.mapper;
+
+import com.ctzaf.dreamshops.dto.ImageDto;
+import com.ctzaf.dreamshops.model.Image;
+import org.mapstruct.Mapper;
+
+@Mapper(componentModel = "spring")
+public interface ImageMapper {
+    ImageDto toDto(Image image);
+}
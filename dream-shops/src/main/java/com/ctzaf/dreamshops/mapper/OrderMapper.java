@@ -0,0 +1,31 @@
+package com.ctzaf.dreamshops.mapper;
+
+import com.ctzaf.dreamshops.dto.OrderDto;
+import com.ctzaf.dreamshops.dto.OrderItemDto;
+import com.ctzaf.dreamshops.model.Order;
+import com.ctzaf.dreamshops.model.OrderItem;
+import com.ctzaf.dreamshops.repository.OrderItemRepository;
+import com.ctzaf.dreamshops.repository.OrderRepository;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(componentModel = "spring")
+public interface OrderMapper {
+    @Mapping(target = "id", source = "orderId")
+    @Mapping(target = "userId", source = "user.id")
+    @Mapping(target = "status", source = "orderStatus")
+    @Mapping(target = "items", source = "orderItems")
+    OrderDto toDto(Order order);
+
+    @Mapping(target = "productName", source = "product.name")
+    @Mapping(target = "productBrand", source = "product.brand")
+    OrderItemDto toDto(OrderItem orderItem);
+
+    @Mapping(target = "id", source = "orderId")
+    @Mapping(target = "status", source = "orderStatus")
+    @Mapping(target = "userId", ignore = true)
+    @Mapping(target = "items", ignore = true)
+    OrderDto toDto(OrderRepository.OrderSummary order);
+
+    OrderItemDto toDto(OrderItemRepository.OrderItemSummary orderItem);
+}
@@ -0,0 +1,16 @@
+package com.ctzaf.dreamshops.mapper;
+
+import com.ctzaf.dreamshops.dto.ProductDto;
+import com.ctzaf.dreamshops.model.Product;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+/**
+ * Maps the fields of a product. Images are left out on purpose: they are a lazy collection,
+ * so the product service resolves them in bulk and sets them on the dto itself.
+ */
+@Mapper(componentModel = "spring")
+public interface ProductMapper {
+    @Mapping(target = "images", ignore = true)
+    ProductDto toDto(Product product);
+}
@@ -0,0 +1,11 @@
+package com.ctzaf.dreamshops.mapper;
+
+import com.ctzaf.dreamshops.dto.UserDto;
+import com.ctzaf.dreamshops.model.User;
+import org.mapstruct.InjectionStrategy;
+import org.mapstruct.Mapper;
+
+@Mapper(componentModel = "spring", uses = {OrderMapper.class, CartMapper.class}, injectionStrategy = InjectionStrategy.CONSTRUCTOR)
+public interface UserMapper {
+    UserDto toDto(User user);
+}
@@ -1,13 +1,18 @@
 package com.ctzaf.dreamshops.model;
 
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 @Getter
@@ -15,6 +20,7 @@ import java.util.Set;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+@Table(indexes = @Index(name = "idx_cart_last_modified", columnList = "last_modified"))
 public class Cart {
 
     @Id
@@ -22,6 +28,17 @@ public class Cart {
     private Long id;
     private BigDecimal totalAmount = BigDecimal.ZERO;
 
+    @Version
+    private long version;
+
+    /**
+     * Set on insert and on every update of the cart. Adding, changing or removing a line always
+     * changes the total, so this is also the time of the last change to the items.
+     */
+    @UpdateTimestamp
+    @Column(name = "last_modified")
+    private Instant lastModified;
+
     @OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, orphanRemoval = true) // When a cart is deleted all the cart items will be deleted.
     private Set<CartItem> items = new HashSet<>();
 
@@ -29,34 +46,95 @@ public class Cart {
     @JoinColumn(name = "user_id")
     private User user;
 
+    /**
+     * Index of the items by product id, built from the loaded items on first lookup and kept
+     * in sync by addItem, removeItem and clearCart. Reading the id of a lazy product does not
+     * initialize it, so finding an item never loads the products of the cart.
+     */
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private Map<Long, CartItem> itemsByProductId;
+
+    public void setItems(Set<CartItem> items) {
+        this.items = items;
+        this.itemsByProductId = null;
+    }
+
+    /**
+     * Returns the item of the given product, or null when the product is not in the cart.
+     */
+    public CartItem getItem(Long productId) {
+        return itemIndex().get(productId);
+    }
+
+    /**
+     * Adds a new line to the cart and adds its total to the cart total.
+     * Adding a line that is already in the cart is a no-op, use updateItem to change it.
+     */
     public void addItem(CartItem item) {
+        CartItem previous = itemIndex().putIfAbsent(item.getProduct().getId(), item);
+        if (previous != null) {
+            return;
+        }
         this.items.add(item);
         item.setCart(this);
-        updateTotalAmount();
+        this.totalAmount = currentTotal().add(lineTotal(item));
+    }
+
+    /**
+     * Changes the quantity and unit price of a line, applying only the difference
+     * between its old and new total to the cart total.
+     */
+    public void updateItem(CartItem item, int quantity, BigDecimal unitPrice) {
+        BigDecimal before = lineTotal(item);
+        item.setQuantity(quantity);
+        item.setUnitPrice(unitPrice);
+        item.setTotalPrice();
+        this.totalAmount = currentTotal().subtract(before).add(lineTotal(item));
     }
 
     public void removeItem(CartItem item) {
+        if (itemIndex().remove(item.getProduct().getId()) == null) {
+            return;
+        }
         this.items.remove(item);
         item.setCart(null);
-        updateTotalAmount();
+        this.totalAmount = currentTotal().subtract(lineTotal(item));
+    }
+
+    private Map<Long, CartItem> itemIndex() {
+        if (itemsByProductId == null) {
+            itemsByProductId = new HashMap<>();
+            items.forEach(item -> itemsByProductId.put(item.getProduct().getId(), item));
+        }
+        return itemsByProductId;
     }
 
     /**
-     * Recalculates the total amount of the cart by summing up the price of each item in the cart.
+     * Calculates the total amount of the cart from scratch by summing up the price of each item in the cart.
+     * The stored total is maintained incrementally, this is only needed to verify it.
      * If an item does not have a unit price, it is ignored.
      */
-    private void updateTotalAmount() {
-        this.totalAmount = items.stream().map(item -> {
-            BigDecimal unitPrice = item.getUnitPrice();
-            if(unitPrice == null) {
-                return BigDecimal.ZERO;
-            }
-            return unitPrice.multiply(BigDecimal.valueOf(item.getQuantity()));
-        }).reduce(BigDecimal.ZERO, BigDecimal::add);
+    public BigDecimal calculateTotalAmount() {
+        return items.stream().map(Cart::lineTotal).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private BigDecimal currentTotal() {
+        return totalAmount == null ? BigDecimal.ZERO : totalAmount;
+    }
+
+    private static BigDecimal lineTotal(CartItem item) {
+        BigDecimal unitPrice = item.getUnitPrice();
+        if(unitPrice == null) {
+            return BigDecimal.ZERO;
+        }
+        return unitPrice.multiply(BigDecimal.valueOf(item.getQuantity()));
     }
 
     public void clearCart(){
         this.items.clear();
-        updateTotalAmount();
+        this.itemsByProductId = null;
+        this.totalAmount = BigDecimal.ZERO;
     }
 }
@@ -21,6 +21,9 @@ public class Category {
     private Long id;
     private String name;
 
+    @Version
+    private long version;
+
     @JsonIgnore
     @OneToMany(mappedBy = "category")
     private List<Product> products;
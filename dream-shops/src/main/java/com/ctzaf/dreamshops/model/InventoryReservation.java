@@ -0,0 +1,28 @@
+package com.ctzaf.dreamshops.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Units of a product taken by a committed order but not yet subtracted from the product's
+ * inventory. Written in the order transaction when inventory is reserved in memory, and
+ * deleted in the same transaction that subtracts it from the product row.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(indexes = @Index(name = "idx_inventory_reservation_product", columnList = "product_id"))
+public class InventoryReservation {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(nullable = false)
+    private int quantity;
+}
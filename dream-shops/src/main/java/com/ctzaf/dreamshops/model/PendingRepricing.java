@@ -0,0 +1,30 @@
+package com.ctzaf.dreamshops.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * A product whose price changed and whose cart lines have not been repriced yet.
+ * Written in the transaction that changes the price, so the change survives a restart.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+public class PendingRepricing {
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(name = "queued_at", nullable = false)
+    private Instant queuedAt;
+
+    public PendingRepricing(Long productId, Instant queuedAt) {
+        this.productId = productId;
+        this.queuedAt = queuedAt;
+    }
+}
@@ -24,6 +24,9 @@ public class Product {
     private int inventory;
     private String description;
 
+    @Version
+    private long version;
+
     @ManyToOne(cascade = CascadeType.ALL)
     @JoinColumn(name = "category_id")
     private Category category;
@@ -2,7 +2,37 @@ package com.ctzaf.dreamshops.repository;
 
 import com.ctzaf.dreamshops.model.CartItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import org.springframework.data.domain.Pageable;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 
 public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     void deleteAllByCartId(Long id);
+
+    @Modifying
+    @Query("delete from CartItem i where i.cart.id in " +
+            "(select c.id from Cart c where c.id in :cartIds and c.lastModified < :cutoff)")
+    int deleteIdleByCartIdIn(@Param("cartIds") Collection<Long> cartIds, @Param("cutoff") Instant cutoff);
+
+    @Query("select distinct i.cart.id from CartItem i where i.product.id in :productIds " +
+            "and i.cart.id > :afterCartId order by i.cart.id")
+    List<Long> findCartIdsByProductIdIn(@Param("productIds") Collection<Long> productIds,
+                                        @Param("afterCartId") Long afterCartId,
+                                        Pageable pageable);
+
+    @Modifying
+    @Query("update CartItem i set " +
+            "i.unitPrice = (select p.price from Product p where p.id = i.product.id), " +
+            "i.totalPrice = (select p.price from Product p where p.id = i.product.id) * i.quantity, " +
+            "i.version = i.version + 1 " +
+            "where i.cart.id in :cartIds and i.product.id in :productIds " +
+            "and i.unitPrice <> (select p.price from Product p where p.id = i.product.id)")
+    int repriceByCartIdInAndProductIdIn(@Param("cartIds") Collection<Long> cartIds,
+                                        @Param("productIds") Collection<Long> productIds);
 }
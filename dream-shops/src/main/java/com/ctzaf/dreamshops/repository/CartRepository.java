@@ -1,10 +1,40 @@
 package com.ctzaf.dreamshops.repository;
 
 import com.ctzaf.dreamshops.model.Cart;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 
 public interface CartRepository extends JpaRepository<Cart, Long> {
 
     Cart findByUserId(Long userId);
+
+    @Query("select distinct c from Cart c left join fetch c.items i left join fetch i.product p " +
+            "left join fetch p.category where c.id = :id")
+    Optional<Cart> findWithItemsById(@Param("id") Long id);
+
+    @Query("select c.totalAmount from Cart c where c.id = :id")
+    Optional<BigDecimal> findTotalAmountById(@Param("id") Long id);
+
+    @Query("select c.id from Cart c where c.lastModified < :cutoff order by c.lastModified")
+    List<Long> findIdsModifiedBefore(@Param("cutoff") Instant cutoff, Pageable pageable);
+
+    @Modifying
+    @Query("delete from Cart c where c.id in :ids and c.lastModified < :cutoff")
+    int deleteIdleByIdIn(@Param("ids") Collection<Long> ids, @Param("cutoff") Instant cutoff);
+
+    @Modifying
+    @Query("update Cart c set c.totalAmount = " +
+            "(select coalesce(sum(i.unitPrice * i.quantity), 0) from CartItem i where i.cart.id = c.id), " +
+            "c.version = c.version + 1 where c.id in :ids")
+    int recalculateTotalAmountByIdIn(@Param("ids") Collection<Long> ids);
 }
@@ -3,8 +3,11 @@ package com.ctzaf.dreamshops.repository;
 import com.ctzaf.dreamshops.model.Image;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface ImageRepository extends JpaRepository<Image, Long> {
     List<Image> findByProductId(Long id);
+
+    List<Image> findByProductIdIn(Collection<Long> productIds);
 }
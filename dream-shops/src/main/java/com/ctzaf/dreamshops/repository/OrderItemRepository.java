@@ -0,0 +1,27 @@
+package com.ctzaf.dreamshops.repository;
+
+import com.ctzaf.dreamshops.model.OrderItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+
+public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
+
+    @Query("select i.order.orderId as orderId, i.id as id, p.name as productName, p.brand as productBrand, " +
+            "i.quantity as quantity, i.price as price " +
+            "from OrderItem i join i.product p where i.order.orderId in :orderIds order by i.id")
+    List<OrderItemSummary> findSummariesByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
+
+    interface OrderItemSummary {
+        Long getOrderId();
+        Long getId();
+        String getProductName();
+        String getProductBrand();
+        int getQuantity();
+        BigDecimal getPrice();
+    }
+}
@@ -1,10 +1,29 @@
 package com.ctzaf.dreamshops.repository;
 
+import com.ctzaf.dreamshops.enums.OrderStatus;
 import com.ctzaf.dreamshops.model.Order;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-import java.util.List;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Optional;
 
 public interface OrderRepository extends JpaRepository<Order, Long> {
-    List<Order> findByUserId(Long userId);
+    @Query("select o.orderId as orderId, o.orderDate as orderDate, o.totalAmount as totalAmount, " +
+            "o.orderStatus as orderStatus from Order o where o.user.id = :userId order by o.orderId desc")
+    Slice<OrderSummary> findSummariesByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    @Query("select o.version from Order o where o.orderId = :orderId")
+    Optional<Long> findVersionByOrderId(@Param("orderId") Long orderId);
+
+    interface OrderSummary {
+        Long getOrderId();
+        LocalDate getOrderDate();
+        BigDecimal getTotalAmount();
+        OrderStatus getOrderStatus();
+    }
 }
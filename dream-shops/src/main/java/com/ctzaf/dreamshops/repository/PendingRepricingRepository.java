@@ -0,0 +1,19 @@
+package com.ctzaf.dreamshops.repository;
+
+import com.ctzaf.dreamshops.model.PendingRepricing;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface PendingRepricingRepository extends JpaRepository<PendingRepricing, Long> {
+    List<PendingRepricing> findByProductIdGreaterThanOrderByProductIdAsc(Long productId, Pageable pageable);
+
+    @Modifying
+    @Query("delete from PendingRepricing r where r.productId = :productId and r.queuedAt = :queuedAt")
+    int deleteIfUnchanged(@Param("productId") Long productId, @Param("queuedAt") Instant queuedAt);
+}
@@ -1,22 +1,34 @@
 package com.ctzaf.dreamshops.repository;
 
 import com.ctzaf.dreamshops.model.Product;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
+import java.util.Optional;
 
-public interface ProductRepository extends JpaRepository<Product, Long> {
-    List<Product> findByCategoryName(String category);
+public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product> {
+    Window<Product> findAllBy(ScrollPosition position, Limit limit, Sort sort);
 
-    List<Product> findByBrand(String brand);
+    Long countByBrandAndName(String brand, String name);
 
-    List<Product> findByCategoryNameAndBrand(String category, String brand);
+    boolean existsByNameAndBrand(String name, String name1);
 
-    List<Product> findByName(String name);
+    @Query("select oi.product.id, sum(oi.quantity) from OrderItem oi group by oi.product.id")
+    List<Object[]> sumOrderedQuantities();
 
-    List<Product> findByBrandAndName(String brand, String name);
+    @Modifying
+    @Query("update Product p set p.version = p.version + 1 where p.id = :id")
+    void incrementVersion(@Param("id") Long id);
 
-    Long countByBrandAndName(String brand, String name);
-
-    boolean existsByNameAndBrand(String name, String name1);
+    @Query("select p.inventory - coalesce((select sum(r.quantity) from InventoryReservation r " +
+            "where r.productId = p.id), 0) from Product p where p.id = :id")
+    Optional<Long> findAvailableInventoryById(@Param("id") Long id);
 }
@@ -0,0 +1,11 @@
+package com.ctzaf.dreamshops.request;
+
+import com.ctzaf.dreamshops.enums.CartItemOperationType;
+import lombok.Data;
+
+@Data
+public class CartItemOperationRequest {
+    private CartItemOperationType type;
+    private Long productId;
+    private Integer quantity;
+}
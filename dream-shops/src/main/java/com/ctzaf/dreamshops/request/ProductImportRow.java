@@ -0,0 +1,15 @@
+package com.ctzaf.dreamshops.request;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+@Data
+public class ProductImportRow {
+    private String name;
+    private String brand;
+    private BigDecimal price;
+    private int inventory;
+    private String description;
+    private String category;
+}
@@ -0,0 +1,10 @@
+package com.ctzaf.dreamshops.request;
+
+import lombok.Data;
+
+@Data
+public class ProductPageRequest {
+    private String cursor;
+    private Integer size;
+    private String sort;
+}
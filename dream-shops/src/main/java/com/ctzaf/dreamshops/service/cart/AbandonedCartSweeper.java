@@ -0,0 +1,96 @@
+package com.ctzaf.dreamshops.service.cart;
+
+import com.ctzaf.dreamshops.repository.CartItemRepository;
+import com.ctzaf.dreamshops.repository.CartRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Periodically deletes carts that have not been modified for longer than the configured TTL.
+ * Carts are removed in small batches, each in its own short transaction made of two set-based
+ * deletes, so the sweep never holds locks on more than one batch of rows at a time.
+ * The deletes re-check the cutoff, so a cart touched after it was selected is kept.
+ * Carts created before the last-modified column existed have no timestamp and are skipped
+ * until they are next modified.
+ */
+@Slf4j
+@Component
+public class AbandonedCartSweeper {
+
+    private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final CartIdCache cartIdCache;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration ttl;
+    private final int batchSize;
+
+    public AbandonedCartSweeper(CartRepository cartRepository,
+                                CartItemRepository cartItemRepository,
+                                CartIdCache cartIdCache,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${carts.sweeper.ttl:P7D}") Duration ttl,
+                                @Value("${carts.sweeper.batch-size:200}") int batchSize) {
+        this.cartRepository = cartRepository;
+        this.cartItemRepository = cartItemRepository;
+        this.cartIdCache = cartIdCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttl = ttl;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Deletes every cart idle since before now minus the TTL, one batch at a time.
+     *
+     * @return the number of carts deleted
+     */
+    @Scheduled(initialDelayString = "${carts.sweeper.initial-delay:PT5M}",
+            fixedDelayString = "${carts.sweeper.interval:PT1H}")
+    public int sweep() {
+        Instant cutoff = Instant.now().minus(ttl);
+        int swept = 0;
+        int batches = 0;
+        long sweepStart = System.nanoTime();
+        while (true) {
+            long batchStart = System.nanoTime();
+            Integer deleted = transactionTemplate.execute(status -> deleteBatch(cutoff));
+            if (deleted == null || deleted == 0) {
+                break;
+            }
+            swept += deleted;
+            batches++;
+            log.debug("Swept {} abandoned carts in {} ms", deleted, elapsedMillis(batchStart));
+            if (deleted < batchSize) {
+                break;
+            }
+        }
+        if (swept > 0) {
+            log.info("Swept {} carts idle since before {} in {} batches, {} ms",
+                    swept, cutoff, batches, elapsedMillis(sweepStart));
+        }
+        return swept;
+    }
+
+    private int deleteBatch(Instant cutoff) {
+        List<Long> ids = cartRepository.findIdsModifiedBefore(cutoff, PageRequest.of(0, batchSize));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        cartItemRepository.deleteIdleByCartIdIn(ids, cutoff);
+        int deleted = cartRepository.deleteIdleByIdIn(ids, cutoff);
+        cartIdCache.invalidateCarts(ids);
+        return deleted;
+    }
+
+    private static long elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
@@ -0,0 +1,64 @@
+package com.ctzaf.dreamshops.service.cart;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Bounded mapping from user id to the id of that user's cart, so resolving the cart of the
+ * authenticated user does not need a query once it has been looked up. Every path that deletes
+ * a cart invalidates its entry. Inside a transaction the entry is invalidated again once the
+ * transaction completes, since until the delete commits a concurrent lookup can still find the
+ * cart and cache its id. Callers retry once with a fresh id if a cached one is stale anyway.
+ */
+@Component
+class CartIdCache {
+
+    private final Cache<Long, Long> cache;
+
+    CartIdCache(@Value("${carts.id-cache.maximum-size:100000}") long maximumSize,
+                @Value("${carts.id-cache.expire-after-access:PT30M}") Duration expireAfterAccess) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterAccess(expireAfterAccess)
+                .build();
+    }
+
+    /**
+     * Returns the cart id of the given user, resolving it with the given loader on a miss.
+     * Concurrent misses for the same user wait for a single load.
+     */
+    Long get(Long userId, Function<Long, Long> loader) {
+        return cache.get(userId, loader);
+    }
+
+    void invalidateUser(Long userId) {
+        invalidateNowAndAfterCompletion(() -> cache.invalidate(userId));
+    }
+
+    void invalidateCarts(Collection<Long> cartIds) {
+        Set<Long> ids = new HashSet<>(cartIds);
+        invalidateNowAndAfterCompletion(() -> cache.asMap().values().removeIf(ids::contains));
+    }
+
+    private static void invalidateNowAndAfterCompletion(Runnable invalidation) {
+        invalidation.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidation.run();
+                }
+            });
+        }
+    }
+}
@@ -1,17 +1,26 @@
 package com.ctzaf.dreamshops.service.cart;
 
+import com.ctzaf.dreamshops.enums.CartItemOperationType;
 import com.ctzaf.dreamshops.exceptions.ResourceNotFoundException;
 import com.ctzaf.dreamshops.model.Cart;
 import com.ctzaf.dreamshops.model.CartItem;
 import com.ctzaf.dreamshops.model.Product;
 import com.ctzaf.dreamshops.repository.CartItemRepository;
 import com.ctzaf.dreamshops.repository.CartRepository;
+import com.ctzaf.dreamshops.request.CartItemOperationRequest;
 import com.ctzaf.dreamshops.service.product.IProductService;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class CartItemService implements ICartItemService {
@@ -20,9 +29,20 @@ public class CartItemService implements ICartItemService {
     private final CartRepository cartRepository;
     private final IProductService productService;
     private final ICartService cartService;
+    private final CartMutationDispatcher mutationDispatcher;
+    private final PendingQuantityUpdates pendingUpdates;
 
+    /**
+     * Adds a quantity of a product to a cart. Like every mutation below, it runs in its own
+     * transaction and is retried when a concurrent request changed the same cart first,
+     * or goes through the cart's single writer when those are enabled.
+     */
     @Override
     public void addItemToCart(Long cartId, Long productId, int quantity) {
+        mutateCart(cartId, () -> addItem(cartId, productId, quantity));
+    }
+
+    private void addItem(Long cartId, Long productId, int quantity) {
         // 1. Get the cart
         // 2. Get the product
         // 3. Check if the product already in the cart
@@ -30,62 +50,190 @@ public class CartItemService implements ICartItemService {
         // 5. If not, then initiate a new CartItem entry.
         Cart cart = cartService.getCart(cartId);
         Product product = productService.getProductById(productId);
-        CartItem cartItem = cart.getItems()
-                .stream()
-                .filter(item -> item.getProduct().getId().equals(productId))
-                .findFirst().orElse(new CartItem());
+        CartItem cartItem = Optional.ofNullable(cart.getItem(productId)).orElse(new CartItem());
         if(cartItem.getId() == null) {
             cartItem.setCart(cart);
             cartItem.setProduct(product);
             cartItem.setQuantity(quantity);
             cartItem.setUnitPrice(product.getPrice());
+            cartItem.setTotalPrice();
+            cart.addItem(cartItem);
         } else {
-            cartItem.setQuantity(cartItem.getQuantity() + quantity);
+            cart.updateItem(cartItem, cartItem.getQuantity() + quantity, cartItem.getUnitPrice());
         }
-        cartItem.setTotalPrice();
-        cart.addItem(cartItem);
         cartItemRepository.save(cartItem);
         cartRepository.save(cart);
     }
 
     @Override
     public void removeItemFromCart(Long cartId, Long productId) {
-        Cart cart = cartService.getCart(cartId);
-        CartItem itemToRemove = getCartItem(cartId, productId);
+        mutateCart(cartId, () -> {
+            Cart cart = cartService.getCart(cartId);
+            CartItem itemToRemove = findCartItem(cart, productId);
 
-        cart.removeItem(itemToRemove);
-        cartRepository.save(cart);
+            cart.removeItem(itemToRemove);
+            cartRepository.save(cart);
+        });
     }
 
+    /**
+     * Sets the quantity of a product in a cart. When debouncing is enabled the new quantity is
+     * only recorded, after checking the item exists on the first update of a burst, and written
+     * together with the other updates of the cart once the debounce window has passed.
+     * Reads of the cart see recorded quantities straight away.
+     */
     @Override
     public void updateQuantity(Long cartId, Long productId, int quantity) {
+        if (!pendingUpdates.isEnabled()) {
+            mutateCart(cartId, () -> applyQuantities(cartId, Map.of(productId, quantity), true));
+            return;
+        }
+        if (!pendingUpdates.contains(cartId, productId)) {
+            getCartItem(cartId, productId);
+        }
+        pendingUpdates.put(cartId, productId, quantity, this::flushQuietly);
+    }
+
+    /**
+     * Writes the pending quantity updates of a cart, if there are any. If the write fails the
+     * updates are put back, behind any newer ones, and another flush is scheduled, unless the
+     * cart no longer exists. Called inside a transaction, the write joins it and the updates are
+     * put back if that transaction rolls back.
+     *
+     * @param cartId the id of the cart
+     * @return whether there were pending updates to write
+     */
+    @Override
+    public boolean flushPendingUpdates(Long cartId) {
+        Map<Long, Integer> updates = pendingUpdates.drain(cartId);
+        if (updates.isEmpty()) {
+            return false;
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        pendingUpdates.restore(cartId, updates, CartItemService.this::flushQuietly);
+                    }
+                }
+            });
+            mutationDispatcher.execute(cartId, () -> applyQuantities(cartId, updates, false));
+            return true;
+        }
+        try {
+            mutationDispatcher.execute(cartId, () -> applyQuantities(cartId, updates, false));
+        } catch (ResourceNotFoundException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            pendingUpdates.restore(cartId, updates, this::flushQuietly);
+            throw e;
+        }
+        return true;
+    }
+
+    private void flushQuietly(Long cartId) {
+        try {
+            flushPendingUpdates(cartId);
+        } catch (RuntimeException e) {
+            log.warn("Could not write pending quantity updates of cart {}", cartId, e);
+        }
+    }
+
+    @PreDestroy
+    void flushAll() {
+        pendingUpdates.cartIds().forEach(this::flushQuietly);
+    }
+
+    /**
+     * Sets the quantities of the given products in a cart at their current price. Products no
+     * longer in the cart are an error when strict, and are skipped otherwise, as happens when
+     * an item was removed while its quantity update was pending.
+     */
+    private void applyQuantities(Long cartId, Map<Long, Integer> quantities, boolean strict) {
         Cart cart = cartService.getCart(cartId);
-        cart.getItems()
-                .stream()
-                .filter(item -> item.getProduct().getId().equals(productId))
-                .findFirst()
-                .ifPresent(item -> {
-                    item.setQuantity(quantity);
-                    item.setUnitPrice(item.getProduct().getPrice());
-                    item.setTotalPrice();
-                });
-
-        BigDecimal totalAmount = cart.getItems()
-                .stream()
-                .map(CartItem::getTotalPrice)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        cart.setTotalAmount(totalAmount);
+        quantities.forEach((productId, quantity) -> {
+            CartItem item = strict ? findCartItem(cart, productId) : cart.getItem(productId);
+            if (item != null) {
+                cart.updateItem(item, quantity, item.getProduct().getPrice());
+            }
+        });
         cartRepository.save(cart);
     }
 
+    /**
+     * Runs a mutation of a cart after writing the cart's pending quantity updates, so it
+     * applies on top of every update accepted before it.
+     */
+    private void mutateCart(Long cartId, Runnable mutation) {
+        flushPendingUpdates(cartId);
+        mutationDispatcher.execute(cartId, mutation);
+    }
+
+    /**
+     * Applies a list of add, update and remove operations to a cart in one transaction.
+     * The cart and its items are loaded once, the products of all add and update operations
+     * are resolved in one batch, and the changes are flushed once on commit. Operations are
+     * applied in order, so a later operation sees the effect of an earlier one on the same product.
+     *
+     * @param cartId the id of the cart to change
+     * @param operations the operations to apply
+     * @throws ResourceNotFoundException if the cart, a product or an item to update or remove is not found
+     * @throws IllegalArgumentException if an operation is missing its type, product id or quantity
+     */
+    @Override
+    public void applyOperations(Long cartId, List<CartItemOperationRequest> operations) {
+        for (CartItemOperationRequest operation : operations) {
+            if (operation.getType() == null || operation.getProductId() == null) {
+                throw new IllegalArgumentException("Every operation needs a type and a product id");
+            }
+            if (operation.getType() != CartItemOperationType.REMOVE
+                    && (operation.getQuantity() == null || operation.getQuantity() < 1)) {
+                throw new IllegalArgumentException("Quantity must be positive for " + operation.getType());
+            }
+        }
+        Map<Long, Product> products = productService.getProductsByIds(operations.stream()
+                .filter(operation -> operation.getType() != CartItemOperationType.REMOVE)
+                .map(CartItemOperationRequest::getProductId)
+                .distinct()
+                .toList());
+        mutateCart(cartId, () -> applyOperations(cartId, operations, products));
+    }
+
+    private void applyOperations(Long cartId, List<CartItemOperationRequest> operations, Map<Long, Product> products) {
+        Cart cart = cartRepository.findWithItemsById(cartId)
+                .orElseThrow(() -> new ResourceNotFoundException("Cart not found"));
+        for (CartItemOperationRequest operation : operations) {
+            Long productId = operation.getProductId();
+            switch (operation.getType()) {
+                case ADD -> {
+                    CartItem cartItem = cart.getItem(productId);
+                    if (cartItem == null) {
+                        Product product = products.get(productId);
+                        cartItem = new CartItem();
+                        cartItem.setProduct(product);
+                        cartItem.setQuantity(operation.getQuantity());
+                        cartItem.setUnitPrice(product.getPrice());
+                        cartItem.setTotalPrice();
+                        cart.addItem(cartItem);
+                    } else {
+                        cart.updateItem(cartItem, cartItem.getQuantity() + operation.getQuantity(), cartItem.getUnitPrice());
+                    }
+                }
+                case UPDATE -> cart.updateItem(findCartItem(cart, productId), operation.getQuantity(),
+                        products.get(productId).getPrice());
+                case REMOVE -> cart.removeItem(findCartItem(cart, productId));
+            }
+        }
+    }
+
     @Override
     public CartItem getCartItem(Long cartId, Long productId) {
-        Cart cart = cartService.getCart(cartId);
-        return cart.getItems()
-                .stream()
-                .filter(item -> item.getProduct().getId().equals(productId))
-                .findFirst()
+        return findCartItem(cartService.getCart(cartId), productId);
+    }
+
+    private CartItem findCartItem(Cart cart, Long productId) {
+        return Optional.ofNullable(cart.getItem(productId))
                 .orElseThrow(() -> new ResourceNotFoundException("Item Not Found!"));
     }
 }
@@ -0,0 +1,181 @@
+package com.ctzaf.dreamshops.service.cart;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs cart mutations either on the calling thread or, when carts.actor.enabled is set, on a
+ * single writer per cart. In the latter mode every cart id is mapped to one of a fixed number
+ * of worker threads, each with its own mailbox, so mutations of the same cart are serialized in
+ * memory instead of racing on its rows. A worker drains whatever is waiting in its mailbox,
+ * groups it by cart and applies each cart's mutations in one transaction with one flush.
+ * If that transaction fails, the mutations of that cart are applied again one by one so a
+ * single bad request does not fail the others. The caller blocks until its own mutation has
+ * been committed, for at most carts.actor.timeout, and sees any exception it threw.
+ * On shutdown each worker is sent a stop command, finishes what was queued before it and exits;
+ * mutations submitted after that are rejected.
+ */
+@Slf4j
+@Component
+class CartMutationDispatcher {
+
+    private static final Command STOP = new Command(null, () -> { }, new CompletableFuture<>());
+
+    private final OptimisticRetryExecutor retryExecutor;
+    private final boolean enabled;
+    private final int maxBatch;
+    private final Duration timeout;
+    private final List<BlockingQueue<Command>> mailboxes = new ArrayList<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running = true;
+
+    CartMutationDispatcher(OptimisticRetryExecutor retryExecutor,
+                           @Value("${carts.actor.enabled:false}") boolean enabled,
+                           @Value("${carts.actor.workers:0}") int workers,
+                           @Value("${carts.actor.queue-capacity:1024}") int queueCapacity,
+                           @Value("${carts.actor.max-batch:64}") int maxBatch,
+                           @Value("${carts.actor.timeout:PT30S}") Duration timeout) {
+        this.retryExecutor = retryExecutor;
+        this.enabled = enabled;
+        this.maxBatch = Math.max(1, maxBatch);
+        this.timeout = timeout;
+        if (!enabled) {
+            return;
+        }
+        int count = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < count; i++) {
+            BlockingQueue<Command> mailbox = new LinkedBlockingQueue<>(queueCapacity);
+            Thread worker = new Thread(() -> drain(mailbox), "cart-writer-" + i);
+            worker.setDaemon(true);
+            mailboxes.add(mailbox);
+            this.workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * Applies the given mutation of the given cart and waits for it to be committed.
+     * Mutations already running inside a transaction, including those on a worker, run inline.
+     *
+     * @throws IllegalStateException if the dispatcher is shutting down, the cart's mailbox stays
+     * full, or the mutation is not applied within the timeout; in the last case it may still be
+     * applied later
+     */
+    void execute(Long cartId, Runnable mutation) {
+        if (!enabled || TransactionSynchronizationManager.isActualTransactionActive()) {
+            retryExecutor.run(mutation);
+            return;
+        }
+        if (!running) {
+            throw new IllegalStateException("Cart updates are shutting down");
+        }
+        Command command = new Command(cartId, mutation, new CompletableFuture<>());
+        BlockingQueue<Command> mailbox = mailboxes.get(Math.floorMod(Long.hashCode(cartId), mailboxes.size()));
+        try {
+            if (!mailbox.offer(command, timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Too many cart updates in progress, try again later");
+            }
+            if (!running && mailbox.remove(command)) {
+                // Queued after the worker stopped taking commands.
+                throw new IllegalStateException("Cart updates are shutting down");
+            }
+            command.result().get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a cart update", e);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Timed out waiting for a cart update", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void drain(BlockingQueue<Command> mailbox) {
+        List<Command> batch = new ArrayList<>(maxBatch);
+        boolean stopped = false;
+        while (!stopped) {
+            try {
+                batch.add(mailbox.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            mailbox.drainTo(batch, maxBatch - 1);
+            stopped = batch.remove(STOP);
+            Map<Long, List<Command>> byCart = new LinkedHashMap<>();
+            for (Command command : batch) {
+                byCart.computeIfAbsent(command.cartId(), id -> new ArrayList<>()).add(command);
+            }
+            byCart.values().forEach(this::apply);
+            batch.clear();
+        }
+        mailbox.drainTo(batch);
+        batch.forEach(command -> command.result().completeExceptionally(
+                new IllegalStateException("Cart updates are shutting down")));
+    }
+
+    private void apply(List<Command> commands) {
+        try {
+            retryExecutor.run(() -> commands.forEach(command -> command.mutation().run()));
+            commands.forEach(command -> command.result().complete(null));
+            return;
+        } catch (RuntimeException e) {
+            if (commands.size() == 1) {
+                commands.get(0).result().completeExceptionally(e);
+                return;
+            }
+            log.debug("Coalesced update of cart {} failed, applying its {} updates one by one",
+                    commands.get(0).cartId(), commands.size());
+        }
+        for (Command command : commands) {
+            try {
+                retryExecutor.run(command.mutation());
+                command.result().complete(null);
+            } catch (RuntimeException e) {
+                command.result().completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Rejects new mutations and sends every worker a stop command behind the mutations already
+     * queued, then waits for the workers to finish them. Workers are never interrupted, so a
+     * transaction in progress is not cut short.
+     */
+    @PreDestroy
+    void shutdown() {
+        running = false;
+        try {
+            for (BlockingQueue<Command> mailbox : mailboxes) {
+                if (!mailbox.offer(STOP, timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                    log.warn("Could not stop a cart writer, its mailbox stayed full");
+                }
+            }
+            for (Thread worker : workers) {
+                worker.join(timeout.toMillis());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Command(Long cartId, Runnable mutation, CompletableFuture<Void> result) {
+    }
+}
@@ -0,0 +1,124 @@
+package com.ctzaf.dreamshops.service.cart;
+
+import com.ctzaf.dreamshops.model.PendingRepricing;
+import com.ctzaf.dreamshops.repository.CartItemRepository;
+import com.ctzaf.dreamshops.repository.CartRepository;
+import com.ctzaf.dreamshops.repository.PendingRepricingRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Brings the cart lines of products whose price changed up to date in the background.
+ * Price changes are queued by product id in the pending_repricing table, in the transaction
+ * that changes the price, and applied periodically: the carts holding a changed product are
+ * found through the product index on cart_item, in batches ordered by cart id, and each batch
+ * is repriced in its own transaction with one set-based update of the lines and one of the cart
+ * totals. Versions are bumped so that a concurrent cart update retries on top of the new prices.
+ * Carts without the changed products are never read. A queued product is removed once its carts
+ * are repriced, unless its price changed again in the meantime.
+ */
+@Slf4j
+@Service
+public class CartRepricingService implements ICartRepricingService {
+
+    private final CartItemRepository cartItemRepository;
+    private final CartRepository cartRepository;
+    private final PendingRepricingRepository pendingRepricingRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    public CartRepricingService(CartItemRepository cartItemRepository,
+                                CartRepository cartRepository,
+                                PendingRepricingRepository pendingRepricingRepository,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${carts.repricing.batch-size:500}") int batchSize) {
+        this.cartItemRepository = cartItemRepository;
+        this.cartRepository = cartRepository;
+        this.pendingRepricingRepository = pendingRepricingRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Queues the carts holding the given product for repricing. Must be called in the
+     * transaction that changes the price, so the queued change commits with it.
+     *
+     * @param productId the id of the product whose price changed
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Override
+    public void productPriceChanged(Long productId) {
+        pendingRepricingRepository.save(new PendingRepricing(productId, Instant.now()));
+    }
+
+    /**
+     * Reprices the carts holding any queued product, reading the queue in batches of products.
+     * Products whose carts could not be repriced stay queued for the next run.
+     *
+     * @return the number of carts repriced
+     */
+    @Scheduled(initialDelayString = "${carts.repricing.interval:PT30S}",
+            fixedDelayString = "${carts.repricing.interval:PT30S}")
+    @Override
+    public int repricePendingProducts() {
+        long start = System.nanoTime();
+        int carts = 0;
+        int products = 0;
+        long afterProductId = 0;
+        while (true) {
+            List<PendingRepricing> chunk = pendingRepricingRepository.findByProductIdGreaterThanOrderByProductIdAsc(
+                    afterProductId, PageRequest.of(0, batchSize));
+            if (chunk.isEmpty()) {
+                break;
+            }
+            List<Long> productIds = chunk.stream().map(PendingRepricing::getProductId).toList();
+            try {
+                carts += reprice(productIds);
+                transactionTemplate.executeWithoutResult(status -> chunk.forEach(pending ->
+                        pendingRepricingRepository.deleteIfUnchanged(pending.getProductId(), pending.getQueuedAt())));
+                products += chunk.size();
+            } catch (RuntimeException e) {
+                log.warn("Could not reprice carts for {} products, will retry", chunk.size(), e);
+            }
+            afterProductId = productIds.get(productIds.size() - 1);
+            if (chunk.size() < batchSize) {
+                break;
+            }
+        }
+        if (products > 0) {
+            log.info("Repriced {} carts for {} products in {} ms",
+                    carts, products, (System.nanoTime() - start) / 1_000_000);
+        }
+        return carts;
+    }
+    private int reprice(List<Long> productIds) {
+        int carts = 0;
+        long afterCartId = 0;
+        while (true) {
+            List<Long> cartIds = cartItemRepository.findCartIdsByProductIdIn(
+                    productIds, afterCartId, PageRequest.of(0, batchSize));
+            if (cartIds.isEmpty()) {
+                return carts;
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                cartItemRepository.repriceByCartIdInAndProductIdIn(cartIds, productIds);
+                cartRepository.recalculateTotalAmountByIdIn(cartIds);
+            });
+            carts += cartIds.size();
+            afterCartId = cartIds.get(cartIds.size() - 1);
+            if (cartIds.size() < batchSize) {
+                return carts;
+            }
+        }
+    }
+}
@@ -1,17 +1,28 @@
 package com.ctzaf.dreamshops.service.cart;
 
+import com.ctzaf.dreamshops.dto.CartDto;
+import com.ctzaf.dreamshops.dto.CartItemDto;
+import com.ctzaf.dreamshops.dto.CartTotalCheckDto;
+import com.ctzaf.dreamshops.dto.ProductDto;
 import com.ctzaf.dreamshops.exceptions.ResourceNotFoundException;
+import com.ctzaf.dreamshops.mapper.CartMapper;
 import com.ctzaf.dreamshops.model.Cart;
+import com.ctzaf.dreamshops.model.CartItem;
 import com.ctzaf.dreamshops.model.User;
 import com.ctzaf.dreamshops.repository.CartItemRepository;
 import com.ctzaf.dreamshops.repository.CartRepository;
-import jakarta.transaction.Transactional;
+import com.ctzaf.dreamshops.repository.UserRepository;
+import com.ctzaf.dreamshops.service.product.IProductService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -19,7 +30,11 @@ public class CartService implements ICartService {
 
     private final CartRepository cartRepository;
     private final CartItemRepository cartItemRepository;
-    private final AtomicLong cartIdGenerator = new AtomicLong(0);
+    private final CartMapper cartMapper;
+    private final IProductService productService;
+    private final UserRepository userRepository;
+    private final CartIdCache cartIdCache;
+    private final PendingQuantityUpdates pendingUpdates;
 
     /**
      * Retrieves a cart by id.
@@ -30,11 +45,47 @@ public class CartService implements ICartService {
      */
     @Override
     public Cart getCart(Long id) {
-        Cart cart  = cartRepository.findById(id)
+        return cartRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Cart not found"));
-        BigDecimal totalAmount = cart.getTotalAmount();
-        cart.setTotalAmount(totalAmount);
-        return cartRepository.save(cart);
+    }
+
+    /**
+     * Retrieves a read-only view of a cart, loading its items and their products in one query
+     * and the images of those products in a second one. Nothing is written back.
+     * Quantity updates that are accepted but not yet written are applied to the view.
+     *
+     * @param id the id of the cart to be retrieved
+     * @return the cart with the given id
+     * @throws ResourceNotFoundException if no cart is found with the given id
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public CartDto getCartDto(Long id) {
+        Cart cart = cartRepository.findWithItemsById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Cart not found"));
+        CartDto cartDto = cartMapper.toDto(cart);
+        Map<Long, ProductDto> products = productService.getConvertedProducts(
+                        cart.getItems().stream().map(CartItem::getProduct).distinct().toList())
+                .stream()
+                .collect(Collectors.toMap(ProductDto::getId, Function.identity()));
+        for (CartItemDto item : cartDto.getItems()) {
+            item.setProduct(products.get(item.getProduct().getId()));
+        }
+        Map<Long, Integer> pending = pendingUpdates.get(id);
+        if (!pending.isEmpty()) {
+            BigDecimal total = cartDto.getTotalAmount() == null ? BigDecimal.ZERO : cartDto.getTotalAmount();
+            for (CartItemDto item : cartDto.getItems()) {
+                Integer quantity = pending.get(item.getProduct().getId());
+                if (quantity != null) {
+                    total = total.subtract(lineTotal(item.getUnitPrice(), item.getQuantity()));
+                    item.setQuantity(quantity);
+                    item.setUnitPrice(item.getProduct().getPrice());
+                    total = total.add(lineTotal(item.getUnitPrice(), quantity));
+                }
+            }
+            cartDto.setTotalAmount(total);
+        }
+        return cartDto;
     }
 
     /**
@@ -47,22 +98,59 @@ public class CartService implements ICartService {
     @Override
     public void clearCart(Long id) {
         Cart cart = getCart(id);
+        pendingUpdates.drain(id);
         cartItemRepository.deleteAllByCartId(id);
         cart.clearCart();
         cartRepository.deleteById(id);
+        if (cart.getUser() != null) {
+            cartIdCache.invalidateUser(cart.getUser().getId());
+        }
     }
 
     /**
      * Retrieves the total price of all items in the cart with the given id.
      *
+     * Quantity updates that are accepted but not yet written are included.
+     *
      * @param id the id of the cart to get the total price of
      * @return the total price of all items in the cart
      * @throws ResourceNotFoundException if no cart is found with the given id
      */
+    @Transactional(readOnly = true)
     @Override
     public BigDecimal getTotalPrice(Long id) {
-        Cart cart = getCart(id);
-        return cart.getTotalAmount();
+        if (!pendingUpdates.get(id).isEmpty()) {
+            return getCartDto(id).getTotalAmount();
+        }
+        return cartRepository.findTotalAmountById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Cart not found"));
+    }
+
+    private static BigDecimal lineTotal(BigDecimal unitPrice, int quantity) {
+        return unitPrice == null ? BigDecimal.ZERO : unitPrice.multiply(BigDecimal.valueOf(quantity));
+    }
+
+    /**
+     * Compares the incrementally maintained total of the cart with the sum of its items,
+     * optionally overwriting the stored total when they differ.
+     *
+     * @param id the id of the cart to check
+     * @param repair whether a mismatching stored total should be replaced by the computed one
+     * @return the stored and computed totals and whether they matched
+     * @throws ResourceNotFoundException if no cart is found with the given id
+     */
+    @Transactional
+    @Override
+    public CartTotalCheckDto verifyTotalAmount(Long id, boolean repair) {
+        Cart cart = cartRepository.findWithItemsById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Cart not found"));
+        BigDecimal stored = cart.getTotalAmount();
+        BigDecimal computed = cart.calculateTotalAmount();
+        boolean consistent = stored != null && stored.compareTo(computed) == 0;
+        if (!consistent && repair) {
+            cart.setTotalAmount(computed);
+        }
+        return new CartTotalCheckDto(id, stored, computed, consistent, !consistent && repair);
     }
 
     @Override
@@ -75,6 +163,57 @@ public class CartService implements ICartService {
                 });
     }
 
+    /**
+     * Returns the id of the given user's cart, creating the cart if the user has none.
+     * The id is cached per user, so after the first call this does not query the database.
+     *
+     * @param userId the id of the user
+     * @return the id of the user's cart
+     */
+    @Override
+    public Long getOrCreateCartId(Long userId) {
+        return cartIdCache.get(userId, key -> Optional.ofNullable(getCartByUserId(key))
+                .orElseGet(() -> {
+                    Cart cart = new Cart();
+                    cart.setUser(userRepository.getReferenceById(key));
+                    return cartRepository.save(cart);
+                })
+                .getId());
+    }
+
+    /**
+     * Runs the given action against the cart of the given user, creating the cart if the user
+     * has none. If the action fails because the cached cart was deleted in the meantime, the
+     * cached id is evicted and the action is retried once against a fresh cart.
+     *
+     * @param userId the id of the user
+     * @param action the action to run with the id of the user's cart
+     * @throws ResourceNotFoundException if the action fails for any other missing resource
+     */
+    @Override
+    public void updateCartOfUser(Long userId, Consumer<Long> action) {
+        Long cartId = getOrCreateCartId(userId);
+        try {
+            action.accept(cartId);
+        } catch (ResourceNotFoundException e) {
+            if (cartRepository.existsById(cartId)) {
+                throw e;
+            }
+            cartIdCache.invalidateUser(userId);
+            action.accept(getOrCreateCartId(userId));
+        }
+    }
+
+    /**
+     * Forgets the cached cart id of the given user, to be called when the user or cart is deleted.
+     *
+     * @param userId the id of the user
+     */
+    @Override
+    public void evictCartId(Long userId) {
+        cartIdCache.invalidateUser(userId);
+    }
+
     @Override
     public Cart getCartByUserId(Long userId) {
         return cartRepository.findByUserId(userId);
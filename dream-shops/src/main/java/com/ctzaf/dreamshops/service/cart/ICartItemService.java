@@ -1,11 +1,16 @@
 package com.ctzaf.dreamshops.service.cart;
 
 import com.ctzaf.dreamshops.model.CartItem;
+import com.ctzaf.dreamshops.request.CartItemOperationRequest;
+
+import java.util.List;
 
 public interface ICartItemService {
     void addItemToCart(Long cartId,Long productId, int quantity);
     void removeItemFromCart(Long cartId,Long productId);
     void updateQuantity(Long cartId,Long productId, int quantity);
+    void applyOperations(Long cartId, List<CartItemOperationRequest> operations);
+    boolean flushPendingUpdates(Long cartId);
 
     CartItem getCartItem(Long cartId, Long productId);
 }
@@ -0,0 +1,6 @@
+package com.ctzaf.dreamshops.service.cart;
+
+public interface ICartRepricingService {
+    void productPriceChanged(Long productId);
+    int repricePendingProducts();
+}
@@ -1,16 +1,27 @@
 package com.ctzaf.dreamshops.service.cart;
 
+import com.ctzaf.dreamshops.dto.CartDto;
+import com.ctzaf.dreamshops.dto.CartTotalCheckDto;
 import com.ctzaf.dreamshops.model.Cart;
 import com.ctzaf.dreamshops.model.User;
 
 import java.math.BigDecimal;
+import java.util.function.Consumer;
 
 public interface ICartService {
     Cart getCart(Long id);
+    CartDto getCartDto(Long id);
     void clearCart(Long id);
     BigDecimal getTotalPrice(Long id);
+    CartTotalCheckDto verifyTotalAmount(Long id, boolean repair);
 
     Cart initializeNewCart(User user);
 
     Cart getCartByUserId(Long userId);
+
+    Long getOrCreateCartId(Long userId);
+
+    void updateCartOfUser(Long userId, Consumer<Long> action);
+
+    void evictCartId(Long userId);
 }
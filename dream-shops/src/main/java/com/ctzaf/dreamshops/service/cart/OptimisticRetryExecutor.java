@@ -0,0 +1,81 @@
+package com.ctzaf.dreamshops.service.cart;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Runs cart mutations in their own transaction and retries them when the commit loses a race
+ * on the version of a cart or cart item. Each attempt re-reads what it changes, so a retry
+ * applies the change on top of the winning write instead of overwriting it. Attempts are
+ * bounded and spaced by an exponential backoff with full jitter, so requests colliding on the
+ * same cart do not collide again in lock step.
+ */
+@Slf4j
+@Component
+class OptimisticRetryExecutor {
+
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+
+    OptimisticRetryExecutor(PlatformTransactionManager transactionManager,
+                            @Value("${carts.retry.max-attempts:5}") int maxAttempts,
+                            @Value("${carts.retry.initial-backoff:PT0.02S}") Duration initialBackoff,
+                            @Value("${carts.retry.max-backoff:PT0.5S}") Duration maxBackoff) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffMillis = initialBackoff.toMillis();
+        this.maxBackoffMillis = maxBackoff.toMillis();
+    }
+
+    /**
+     * Runs the given action in a new transaction, retrying it on optimistic locking failures.
+     * When called inside an existing transaction the action joins it and is not retried,
+     * because the outer transaction is already marked for rollback by then.
+     *
+     * @throws OptimisticLockingFailureException if the last attempt still conflicts
+     */
+    <T> T execute(Supplier<T> action) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return action.get();
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> action.get());
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                log.debug("Cart update conflicted on attempt {}, retrying", attempt);
+                backOff(attempt, e);
+            }
+        }
+    }
+
+    void run(Runnable action) {
+        execute(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private void backOff(int attempt, OptimisticLockingFailureException cause) {
+        long ceiling = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, 20));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.ctzaf.dreamshops.service.cart;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Holds quantity updates that have been accepted but not yet written, by cart and product.
+ * The first update of a cart schedules a flush of that cart after the debounce window, and
+ * every later update within the window only replaces the pending quantity, so a burst of
+ * updates is written once with its final values. A window of zero disables debouncing.
+ */
+@Component
+class PendingQuantityUpdates {
+
+    private final ConcurrentHashMap<Long, ConcurrentHashMap<Long, Integer>> pending = new ConcurrentHashMap<>();
+    private final long windowMillis;
+    private final ScheduledExecutorService scheduler;
+
+    PendingQuantityUpdates(@Value("${carts.quantity-debounce.window:PT0.25S}") Duration window) {
+        this.windowMillis = window.toMillis();
+        this.scheduler = windowMillis > 0
+                ? Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "cart-quantity-flush");
+                    thread.setDaemon(true);
+                    return thread;
+                })
+                : null;
+    }
+
+    boolean isEnabled() {
+        return scheduler != null;
+    }
+
+    /**
+     * Records the latest quantity of a product in a cart, scheduling the given flush of the
+     * cart after the debounce window if the cart had no pending updates yet.
+     */
+    void put(Long cartId, Long productId, int quantity, Consumer<Long> flush) {
+        merge(cartId, updates -> updates.put(productId, quantity), flush);
+    }
+
+    /**
+     * Puts back updates that were drained for a write that did not go through. A quantity
+     * recorded for the same product since the drain is newer and is kept. The given flush is
+     * scheduled again if the cart had no pending updates left.
+     */
+    void restore(Long cartId, Map<Long, Integer> drained, Consumer<Long> flush) {
+        merge(cartId, updates -> drained.forEach(updates::putIfAbsent), flush);
+    }
+
+    private void merge(Long cartId, Consumer<Map<Long, Integer>> change, Consumer<Long> flush) {
+        boolean[] first = {false};
+        pending.compute(cartId, (id, updates) -> {
+            if (updates == null) {
+                updates = new ConcurrentHashMap<>();
+                first[0] = true;
+            }
+            change.accept(updates);
+            return updates;
+        });
+        if (first[0] && !scheduler.isShutdown()) {
+            scheduler.schedule(() -> flush.accept(cartId), windowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    boolean contains(Long cartId, Long productId) {
+        Map<Long, Integer> updates = pending.get(cartId);
+        return updates != null && updates.containsKey(productId);
+    }
+
+    /**
+     * Returns the pending quantities of a cart by product id without removing them.
+     */
+    Map<Long, Integer> get(Long cartId) {
+        Map<Long, Integer> updates = pending.get(cartId);
+        return updates == null ? Map.of() : Map.copyOf(updates);
+    }
+
+    /**
+     * Removes and returns the pending quantities of a cart, so exactly one caller writes them.
+     */
+    Map<Long, Integer> drain(Long cartId) {
+        Map<Long, Integer> updates = pending.remove(cartId);
+        return updates == null ? Map.of() : updates;
+    }
+
+    Set<Long> cartIds() {
+        return Set.copyOf(pending.keySet());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -5,17 +5,44 @@ import com.ctzaf.dreamshops.exceptions.ProductNotFoundException;
 import com.ctzaf.dreamshops.exceptions.ResourceNotFoundException;
 import com.ctzaf.dreamshops.model.Category;
 import com.ctzaf.dreamshops.repository.CategoryRepository;
+import com.ctzaf.dreamshops.service.product.ProductCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+/**
+ * Serves category reads from an immutable in-memory snapshot indexed by id and by name.
+ * The snapshot is loaded on first use and rebuilt from the database after every write,
+ * then swapped in atomically, so reads never query the database or allocate.
+ * Cached products embed their category, so renaming or deleting a category also drops
+ * the cached products of that category.
+ */
 @Service
 @RequiredArgsConstructor
 public class CategoryService implements ICategoryService {
 
     private final CategoryRepository categoryRepository;
+    private final ProductCache productCache;
+    private final AtomicReference<CategorySnapshot> snapshot = new AtomicReference<>();
+
+    private record CategorySnapshot(List<Category> all, Map<Long, Category> byId, Map<String, Category> byName) {
+
+        static CategorySnapshot of(List<Category> categories) {
+            return new CategorySnapshot(
+                    List.copyOf(categories),
+                    categories.stream().collect(Collectors.toUnmodifiableMap(Category::getId, Function.identity())),
+                    categories.stream()
+                            .filter(category -> category.getName() != null)
+                            .collect(Collectors.toUnmodifiableMap(Category::getName, Function.identity(),
+                                    (first, second) -> first)));
+        }
+    }
 
     /**
      * Retrieves a category by its ID.
@@ -26,7 +53,7 @@ public class CategoryService implements ICategoryService {
      */
     @Override
     public Category getCategoryById(Long id) {
-        return categoryRepository.findById(id)
+        return Optional.ofNullable(snapshot().byId().get(id))
                 .orElseThrow(() -> new ResourceNotFoundException("Category not found"));
     }
 
@@ -39,7 +66,7 @@ public class CategoryService implements ICategoryService {
      */
     @Override
     public Category getCategoryByName(String name) {
-        return categoryRepository.findByName(name);
+        return name == null ? null : snapshot().byName().get(name);
     }
 
     /**
@@ -51,9 +78,11 @@ public class CategoryService implements ICategoryService {
      */
     @Override
     public Category addCategory(Category category) {
-            return Optional.of(category).filter(c -> !categoryRepository.existsByName(c.getName()))
+            Category savedCategory = Optional.of(category).filter(c -> !snapshot().byName().containsKey(c.getName()))
                     .map(categoryRepository::save)
                     .orElseThrow(() -> new AlreadyExistsException(category.getName()+" already exists"));
+            reloadSnapshot();
+            return savedCategory;
     }
 
     /**
@@ -66,10 +95,14 @@ public class CategoryService implements ICategoryService {
      */
     @Override
     public Category updateCategory(Category category, Long id) {
-        return Optional.ofNullable(getCategoryById(id)).map(oldCategory -> {
+        // Load a fresh copy, the snapshot instances are shared with concurrent readers.
+        Category updatedCategory = categoryRepository.findById(id).map(oldCategory -> {
             oldCategory.setName(category.getName());
             return categoryRepository.save(oldCategory);
         }).orElseThrow(() -> new ResourceNotFoundException("Category not found"));
+        reloadSnapshot();
+        productCache.invalidateCategory(id);
+        return updatedCategory;
     }
 
     /**
@@ -79,7 +112,7 @@ public class CategoryService implements ICategoryService {
      */
     @Override
     public List<Category> getAllCategories() {
-        return categoryRepository.findAll();
+        return snapshot().all();
     }
 
 /**
@@ -95,5 +128,22 @@ public class CategoryService implements ICategoryService {
                         () -> {
                     throw new ResourceNotFoundException("Category not found");
                 });
+        reloadSnapshot();
+        productCache.invalidateCategory(id);
+    }
+
+    private CategorySnapshot snapshot() {
+        CategorySnapshot current = snapshot.get();
+        return current != null ? current : reloadSnapshot();
+    }
+
+    /**
+     * Rebuilds the snapshot from the database. Reloads are serialized so a slow
+     * reload can never overwrite the snapshot of a write that finished after it.
+     */
+    private synchronized CategorySnapshot reloadSnapshot() {
+        CategorySnapshot reloaded = CategorySnapshot.of(categoryRepository.findAll());
+        snapshot.set(reloaded);
+        return reloaded;
     }
 }
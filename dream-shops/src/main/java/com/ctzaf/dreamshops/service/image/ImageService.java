@@ -44,7 +44,10 @@ public class ImageService implements IImageService {
     @Override
     public void deleteImageById(Long id) {
         imageRepository.findById(id)
-                .ifPresentOrElse(imageRepository::delete, () -> {
+                .ifPresentOrElse(image -> {
+                    imageRepository.delete(image);
+                    productService.markProductModified(image.getProduct().getId());
+                }, () -> {
                     throw new ResourceNotFoundException("No Image not found with id: " + id);
                 });
     }
@@ -87,6 +90,7 @@ public class ImageService implements IImageService {
                 throw new RuntimeException(e.getMessage());
             }
         }
+        productService.markProductModified(productId);
         return savedImageDto;
     }
 
@@ -105,6 +109,7 @@ public class ImageService implements IImageService {
             image.setFileType(file.getContentType());
             image.setImage(new SerialBlob(file.getBytes()));
             imageRepository.save(image);
+            productService.markProductModified(image.getProduct().getId());
         } catch (IOException | SQLException e) {
             throw new RuntimeException(e.getMessage());
         }
@@ -0,0 +1,8 @@
+package com.ctzaf.dreamshops.service.inventory;
+
+import java.util.Map;
+
+public interface IInventoryService {
+    void reserve(Map<Long, Integer> quantities);
+    void evict(Long productId);
+}
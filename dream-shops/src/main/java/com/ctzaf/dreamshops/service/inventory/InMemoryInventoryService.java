@@ -0,0 +1,326 @@
+package com.ctzaf.dreamshops.service.inventory;
+
+import com.ctzaf.dreamshops.exceptions.InsufficientInventoryException;
+import com.ctzaf.dreamshops.exceptions.ResourceNotFoundException;
+import com.ctzaf.dreamshops.repository.ProductRepository;
+import com.ctzaf.dreamshops.service.product.ProductCache;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reserves inventory against counters held in memory instead of updating product rows on
+ * every checkout. Each product has a counter of the units still available, loaded from the
+ * database the first time the product is ordered. Reservations are taken from the counter,
+ * returned to it when the order transaction rolls back, and recorded in the order transaction
+ * as an inventory_reservation row, so a committed reservation survives a crash. Every
+ * inventory.reservation.flush-interval the recorded reservations are subtracted from the
+ * product table and deleted in one transaction. Counters are loaded as the persisted inventory
+ * minus the reservations not yet subtracted, and reservations left over from before a restart
+ * are applied on startup.
+ * Only suited to a single application instance, since the counters are not shared.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "inventory.reservation.enabled", havingValue = "true")
+public class InMemoryInventoryService implements IInventoryService, ApplicationListener<ApplicationReadyEvent> {
+
+    private static final String RECORD_RESERVATION =
+            "insert into inventory_reservation (product_id, quantity) values (?, ?)";
+    private static final String SELECT_RESERVATIONS =
+            "select id, product_id, quantity from inventory_reservation order by id limit ?";
+    private static final String DECREMENT_INVENTORY =
+            "update product set inventory = inventory - ?, version = version + 1 where id = ?";
+    private static final String DELETE_RESERVATION =
+            "delete from inventory_reservation where id = ?";
+    private static final int FLUSH_BATCH_SIZE = 10_000;
+
+    private final ProductRepository productRepository;
+    private final ProductCache productCache;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ConcurrentHashMap<Long, Stock> stocks = new ConcurrentHashMap<>();
+
+    private enum Take { TAKEN, SHORT, CLOSED }
+
+    /**
+     * The units of one product available in memory, and the reservations taken from them whose
+     * transaction has not completed yet. A stock is registered before its units are loaded, so
+     * concurrent callers wait for one load. An eviction closes the stock, waits for those
+     * reservations to complete, and retires the stock once it is no longer in use.
+     */
+    private static final class Stock {
+        private int available;
+        private int inFlight;
+        private boolean loaded;
+        private boolean failed;
+        private boolean closed;
+        private boolean retired;
+
+        synchronized void loaded(int available) {
+            this.available = available;
+            loaded = true;
+            notifyAll();
+        }
+
+        synchronized void failed() {
+            failed = true;
+            notifyAll();
+        }
+
+        /**
+         * Waits for the units to be loaded and returns whether they were.
+         */
+        synchronized boolean awaitLoaded() {
+            while (!loaded && !failed) {
+                await();
+            }
+            return loaded;
+        }
+
+        synchronized Take take(int quantity) {
+            if (closed) {
+                return Take.CLOSED;
+            }
+            if (available < quantity) {
+                return Take.SHORT;
+            }
+            available -= quantity;
+            inFlight++;
+            return Take.TAKEN;
+        }
+
+        synchronized void complete(int quantity, boolean committed) {
+            if (!committed) {
+                available += quantity;
+            }
+            inFlight--;
+            notifyAll();
+        }
+
+        synchronized void close() {
+            closed = true;
+            while (inFlight > 0) {
+                await();
+            }
+        }
+
+        synchronized void retire() {
+            retired = true;
+            notifyAll();
+        }
+
+        synchronized void awaitRetired() {
+            while (!retired) {
+                await();
+            }
+        }
+
+        private void await() {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for inventory", e);
+            }
+        }
+    }
+
+    public InMemoryInventoryService(ProductRepository productRepository,
+                                    ProductCache productCache,
+                                    JdbcTemplate jdbcTemplate,
+                                    PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.productCache = productCache;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        flush();
+    }
+
+    /**
+     * Takes the given quantities from the in-memory counters of their products, all or nothing,
+     * and records them in the caller's transaction. The reservation is returned to the counters
+     * if that transaction rolls back.
+     *
+     * @param quantities the quantity to take, by product id
+     * @throws InsufficientInventoryException if any product does not have enough inventory left
+     * @throws ResourceNotFoundException if any product does not exist
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Override
+    public void reserve(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        Map<Long, Integer> lines = new TreeMap<>(quantities);
+        Map<Stock, Integer> taken = take(lines);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                taken.forEach((stock, quantity) -> stock.complete(quantity, status == STATUS_COMMITTED));
+            }
+        });
+        List<Object[]> arguments = new ArrayList<>(lines.size());
+        lines.forEach((productId, quantity) -> arguments.add(new Object[]{productId, quantity}));
+        jdbcTemplate.batchUpdate(RECORD_RESERVATION, arguments);
+    }
+
+    /**
+     * Takes every line from the stock of its product. When a stock is being evicted, everything
+     * taken so far is returned before waiting for the eviction, since the eviction may itself be
+     * waiting for those units, and the lines are taken again from the reloaded stocks.
+     */
+    private Map<Stock, Integer> take(Map<Long, Integer> lines) {
+        while (true) {
+            Map<Stock, Integer> taken = new LinkedHashMap<>();
+            Stock closed = null;
+            try {
+                for (Map.Entry<Long, Integer> line : lines.entrySet()) {
+                    Stock stock = stock(line.getKey());
+                    Take result = stock.take(line.getValue());
+                    if (result == Take.CLOSED) {
+                        closed = stock;
+                        break;
+                    }
+                    if (result == Take.SHORT) {
+                        throw new InsufficientInventoryException("Not enough inventory for product " + line.getKey());
+                    }
+                    taken.put(stock, line.getValue());
+                }
+            } catch (RuntimeException e) {
+                taken.forEach((stock, quantity) -> stock.complete(quantity, false));
+                throw e;
+            }
+            if (closed == null) {
+                return taken;
+            }
+            taken.forEach((stock, quantity) -> stock.complete(quantity, false));
+            closed.awaitRetired();
+        }
+    }
+
+    /**
+     * Writes recorded reservations and forgets the counter of a product, so the next
+     * reservation reloads it. Reservations of the product still in flight are waited for,
+     * and new ones wait until the counter has been forgotten. To be called once a change
+     * to the persisted inventory or a deletion of the product has committed.
+     *
+     * @param productId the id of the product
+     */
+    @Override
+    public void evict(Long productId) {
+        Stock stock = stocks.get(productId);
+        if (stock == null) {
+            flush();
+            return;
+        }
+        try {
+            stock.close();
+            flush();
+        } finally {
+            stocks.remove(productId, stock);
+            stock.retire();
+        }
+    }
+
+    /**
+     * Subtracts the recorded reservations from the product table and deletes them, in batches
+     * that each commit on their own. Reservations that could not be written stay recorded for
+     * the next flush.
+     */
+    @Scheduled(fixedDelayString = "${inventory.reservation.flush-interval:PT1S}")
+    public synchronized void flush() {
+        try {
+            Integer applied;
+            do {
+                applied = transactionTemplate.execute(status -> applyReservations());
+            } while (applied != null && applied == FLUSH_BATCH_SIZE);
+        } catch (RuntimeException e) {
+            log.warn("Could not write inventory reservations, will retry", e);
+        }
+    }
+
+    private int applyReservations() {
+        List<Object[]> ids = new ArrayList<>();
+        Map<Long, Integer> deltas = new TreeMap<>();
+        jdbcTemplate.query(SELECT_RESERVATIONS, (RowCallbackHandler) rs -> {
+            ids.add(new Object[]{rs.getLong("id")});
+            deltas.merge(rs.getLong("product_id"), rs.getInt("quantity"), Integer::sum);
+        }, FLUSH_BATCH_SIZE);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        List<Object[]> arguments = new ArrayList<>(deltas.size());
+        deltas.forEach((productId, quantity) -> arguments.add(new Object[]{quantity, productId}));
+        jdbcTemplate.batchUpdate(DECREMENT_INVENTORY, arguments);
+        jdbcTemplate.batchUpdate(DELETE_RESERVATION, ids);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                productCache.invalidateAll(deltas.keySet());
+            }
+        });
+        return ids.size();
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * Returns the stock of a product, loading it on first use. The stock is registered before
+     * the query runs, so the query is not made while holding a lock of the map, and a load can
+     * not start before an eviction and finish after it.
+     */
+    private Stock stock(Long productId) {
+        while (true) {
+            Stock stock = stocks.get(productId);
+            if (stock == null) {
+                Stock created = new Stock();
+                stock = stocks.putIfAbsent(productId, created);
+                if (stock == null) {
+                    load(productId, created);
+                    return created;
+                }
+            }
+            if (stock.awaitLoaded()) {
+                return stock;
+            }
+        }
+    }
+
+    private void load(Long productId, Stock stock) {
+        try {
+            stock.loaded(Math.toIntExact(productRepository.findAvailableInventoryById(productId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Product not found"))));
+        } catch (RuntimeException e) {
+            stocks.remove(productId, stock);
+            stock.failed();
+            throw e;
+        }
+    }
+}
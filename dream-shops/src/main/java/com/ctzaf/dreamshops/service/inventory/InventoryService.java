@@ -0,0 +1,70 @@
+package com.ctzaf.dreamshops.service.inventory;
+
+import com.ctzaf.dreamshops.exceptions.InsufficientInventoryException;
+import com.ctzaf.dreamshops.service.product.ProductCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "inventory.reservation.enabled", havingValue = "false", matchIfMissing = true)
+public class InventoryService implements IInventoryService {
+
+    private static final String DECREMENT_INVENTORY =
+            "update product set inventory = inventory - ?, version = version + 1 where id = ? and inventory >= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProductCache productCache;
+
+    /**
+     * Takes the given quantities out of the inventory of their products with one conditional
+     * update per product, sent as a single JDBC batch. Each update only matches while enough
+     * stock is left, so concurrent checkouts can not oversell. Products are updated in id order
+     * so that checkouts sharing products lock their rows in the same order.
+     * Must run inside the caller's transaction, which is rolled back when any product is short.
+     *
+     * @param quantities the quantity to take, by product id
+     * @throws InsufficientInventoryException if any product does not have enough inventory left
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Override
+    public void reserve(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Long, Integer>> lines = List.copyOf(new TreeMap<>(quantities).entrySet());
+        List<Object[]> arguments = lines.stream()
+                .map(line -> new Object[]{line.getValue(), line.getKey(), line.getValue()})
+                .toList();
+        int[] counts = jdbcTemplate.batchUpdate(DECREMENT_INVENTORY, arguments);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 1) {
+                throw new InsufficientInventoryException(
+                        "Not enough inventory for product " + lines.get(i).getKey());
+            }
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                productCache.invalidateAll(quantities.keySet());
+            }
+        });
+    }
+
+    /**
+     * Nothing is held in memory, the database is always up to date.
+     */
+    @Override
+    public void evict(Long productId) {
+    }
+}
@@ -0,0 +1,222 @@
+package com.ctzaf.dreamshops.service.order;
+
+import com.ctzaf.dreamshops.dto.OrderHandleDto;
+import com.ctzaf.dreamshops.enums.OrderRequestStatus;
+import com.ctzaf.dreamshops.exceptions.ResourceNotFoundException;
+import com.ctzaf.dreamshops.model.Order;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Places orders in the background when orders.async.enabled is set. Requests are put on a
+ * bounded queue and answered with a handle straight away. A single worker drains the queue in
+ * micro-batches and places every order of a batch in one transaction, so a burst of checkouts
+ * costs one commit and one connection per batch instead of one per order. If the batch fails,
+ * for example because one cart is out of stock, its orders are placed again one per transaction
+ * so each gets its own outcome. Replaying is safe because every side effect of placing an order
+ * outside the database, such as autocomplete popularity or the cart caches, is applied after
+ * commit or undone on rollback. Outcomes are kept by handle for orders.async.status-ttl.
+ * The worker is started and stopped with the application context. On shutdown it finishes the
+ * batch in progress, and orders still queued are failed so their handles do not stay queued.
+ */
+@Slf4j
+@Service
+public class AsyncOrderService implements IAsyncOrderService, SmartLifecycle {
+
+    private static final long POLL_INTERVAL_MILLIS = 200;
+
+    private final IOrderService orderService;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<QueuedOrder> queue;
+    private final Cache<String, OrderHandleDto> statuses;
+    private final boolean enabled;
+    private final int maxBatch;
+    private final Duration shutdownTimeout;
+    private volatile Thread worker;
+    private volatile boolean running;
+
+    public AsyncOrderService(IOrderService orderService,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${orders.async.enabled:false}") boolean enabled,
+                             @Value("${orders.async.queue-capacity:1000}") int queueCapacity,
+                             @Value("${orders.async.max-batch:50}") int maxBatch,
+                             @Value("${orders.async.status-ttl:PT1H}") Duration statusTtl,
+                             @Value("${orders.async.shutdown-timeout:PT30S}") Duration shutdownTimeout) {
+        this.orderService = orderService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.maxBatch = Math.max(1, maxBatch);
+        this.shutdownTimeout = shutdownTimeout;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.statuses = Caffeine.newBuilder().expireAfterWrite(statusTtl).build();
+    }
+
+    @Override
+    public synchronized void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::drain, "order-pipeline");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Stops taking orders from the queue, waits up to orders.async.shutdown-timeout for the
+     * batch in progress to finish and fails the orders still queued.
+     */
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            worker.join(shutdownTimeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker.isAlive()) {
+            log.warn("Order pipeline did not finish its batch within {}", shutdownTimeout);
+        }
+        failQueued();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Starts before and stops after the web server, so no order is accepted once the queue
+     * has been drained for the last time.
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    /**
+     * Queues an order for the cart of the given user.
+     *
+     * @param userId the id of the user placing the order
+     * @return the handle to poll for the outcome of the order
+     * @throws IllegalStateException if asynchronous orders are disabled or shutting down, or the queue is full
+     */
+    @Override
+    public OrderHandleDto submitOrder(Long userId) {
+        if (!enabled) {
+            throw new IllegalStateException("Asynchronous orders are disabled");
+        }
+        if (!running) {
+            throw new IllegalStateException("Order placement is shutting down");
+        }
+        OrderHandleDto handle = new OrderHandleDto(UUID.randomUUID().toString(), OrderRequestStatus.QUEUED, null, null);
+        statuses.put(handle.getHandle(), handle);
+        QueuedOrder request = new QueuedOrder(handle.getHandle(), userId);
+        if (!queue.offer(request)) {
+            statuses.invalidate(handle.getHandle());
+            throw new IllegalStateException("Too many orders in progress, try again later");
+        }
+        if (!running && queue.remove(request)) {
+            // Queued after the shutdown drained the queue for the last time.
+            statuses.invalidate(handle.getHandle());
+            throw new IllegalStateException("Order placement is shutting down");
+        }
+        return handle;
+    }
+
+    /**
+     * Returns the current outcome of a queued order.
+     *
+     * @param handle the handle returned when the order was queued
+     * @return the status of the order, with its id once placed or the error once failed
+     * @throws ResourceNotFoundException if the handle is unknown or has expired
+     */
+    @Override
+    public OrderHandleDto getOrderStatus(String handle) {
+        OrderHandleDto status = statuses.getIfPresent(handle);
+        if (status == null) {
+            throw new ResourceNotFoundException("Order request not found");
+        }
+        return status;
+    }
+
+    private void drain() {
+        List<QueuedOrder> batch = new ArrayList<>(maxBatch);
+        while (running) {
+            QueuedOrder first;
+            try {
+                first = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (first == null) {
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, maxBatch - 1);
+            place(batch);
+            batch.clear();
+        }
+    }
+
+    private void place(List<QueuedOrder> batch) {
+        try {
+            List<Order> orders = transactionTemplate.execute(status -> batch.stream()
+                    .map(request -> orderService.placeOrder(request.userId()))
+                    .toList());
+            for (int i = 0; i < batch.size(); i++) {
+                completed(batch.get(i), orders.get(i));
+            }
+            return;
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                failed(batch.get(0), e);
+                return;
+            }
+            log.warn("Group commit of {} orders failed, placing them one by one", batch.size(), e);
+        }
+        for (QueuedOrder request : batch) {
+            try {
+                completed(request, orderService.placeOrder(request.userId()));
+            } catch (RuntimeException e) {
+                failed(request, e);
+            }
+        }
+    }
+
+    private void completed(QueuedOrder request, Order order) {
+        statuses.put(request.handle(),
+                new OrderHandleDto(request.handle(), OrderRequestStatus.COMPLETED, order.getOrderId(), null));
+    }
+
+    private void failed(QueuedOrder request, RuntimeException e) {
+        statuses.put(request.handle(),
+                new OrderHandleDto(request.handle(), OrderRequestStatus.FAILED, null, e.getMessage()));
+    }
+
+    private void failQueued() {
+        List<QueuedOrder> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        remaining.forEach(request -> failed(request, new IllegalStateException("Order placement is shutting down")));
+    }
+
+    private record QueuedOrder(String handle, Long userId) {
+    }
+}
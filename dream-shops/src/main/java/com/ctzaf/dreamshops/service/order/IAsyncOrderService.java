@@ -0,0 +1,8 @@
+package com.ctzaf.dreamshops.service.order;
+
+import com.ctzaf.dreamshops.dto.OrderHandleDto;
+
+public interface IAsyncOrderService {
+    OrderHandleDto submitOrder(Long userId);
+    OrderHandleDto getOrderStatus(String handle);
+}
@@ -0,0 +1,7 @@
+package com.ctzaf.dreamshops.service.order;
+
+import com.ctzaf.dreamshops.model.Order;
+
+public interface IIdempotentOrderService {
+    Order placeOrder(Long userId, String idempotencyKey);
+}
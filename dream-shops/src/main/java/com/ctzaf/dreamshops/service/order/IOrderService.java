@@ -1,15 +1,15 @@
 package com.ctzaf.dreamshops.service.order;
 
 import com.ctzaf.dreamshops.dto.OrderDto;
+import com.ctzaf.dreamshops.dto.OrderHistoryPageDto;
 import com.ctzaf.dreamshops.model.Order;
 
-import java.util.List;
-
 public interface IOrderService {
     Order placeOrder(Long userId);
     OrderDto getOrder(Long orderId);
+    long getOrderVersion(Long orderId);
 
-    List<OrderDto> getUserOrders(Long userId);
+    OrderHistoryPageDto getUserOrders(Long userId, int page, int size);
 
     OrderDto convertToDto(Order order);
 }
@@ -0,0 +1,132 @@
+package com.ctzaf.dreamshops.service.order;
+
+import com.ctzaf.dreamshops.exceptions.InvalidIdempotencyKeyException;
+import com.ctzaf.dreamshops.exceptions.ResourceNotFoundException;
+import com.ctzaf.dreamshops.model.IdempotencyRecord;
+import com.ctzaf.dreamshops.model.Order;
+import com.ctzaf.dreamshops.repository.IdempotencyRecordRepository;
+import com.ctzaf.dreamshops.repository.OrderRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Places orders at most once per idempotency key. The key is recorded in the same transaction
+ * as the order, before anything else is written, so a concurrent request with the same key
+ * waits on the unique index and then fails instead of placing a second order. A replayed key
+ * returns the order placed the first time. Recent keys are answered from a bounded in-memory
+ * store, older ones from the idempotency_record table until they expire after orders.idempotency.ttl.
+ * A failed order keeps no record, so retrying it with the same key tries again.
+ */
+@Slf4j
+@Service
+public class IdempotentOrderService implements IIdempotentOrderService {
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IOrderService orderService;
+    private final OrderRepository orderRepository;
+    private final IdempotencyRecordRepository recordRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Cache<String, PlacedOrder> placedOrders;
+    private final Duration ttl;
+
+    public IdempotentOrderService(IOrderService orderService,
+                                  OrderRepository orderRepository,
+                                  IdempotencyRecordRepository recordRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${orders.idempotency.ttl:P1D}") Duration ttl,
+                                  @Value("${orders.idempotency.cache-size:100000}") long cacheSize) {
+        this.orderService = orderService;
+        this.orderRepository = orderRepository;
+        this.recordRepository = recordRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttl = ttl;
+        this.placedOrders = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Places an order for the cart of the given user, unless an order was already placed with
+     * the same idempotency key, in which case that order is returned. Without a key every call
+     * places a new order.
+     *
+     * @param userId the id of the user placing the order
+     * @param idempotencyKey the key identifying the request, may be null
+     * @return the placed or previously placed order
+     * @throws InvalidIdempotencyKeyException if the key is too long or was used by another user
+     */
+    @Override
+    public Order placeOrder(Long userId, String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return orderService.placeOrder(userId);
+        }
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new InvalidIdempotencyKeyException("Idempotency key must not be longer than " + MAX_KEY_LENGTH + " characters");
+        }
+        PlacedOrder placed = placedOrders.getIfPresent(idempotencyKey);
+        if (placed == null) {
+            placed = recordRepository.findByIdempotencyKey(idempotencyKey)
+                    .map(PlacedOrder::of)
+                    .orElse(null);
+        }
+        if (placed != null) {
+            return replay(idempotencyKey, placed, userId);
+        }
+        try {
+            Order order = transactionTemplate.execute(status -> {
+                IdempotencyRecord record = recordRepository.saveAndFlush(
+                        new IdempotencyRecord(idempotencyKey, userId, Instant.now()));
+                Order placedOrder = orderService.placeOrder(userId);
+                record.setOrderId(placedOrder.getOrderId());
+                return placedOrder;
+            });
+            placedOrders.put(idempotencyKey, new PlacedOrder(userId, order.getOrderId()));
+            return order;
+        } catch (DataIntegrityViolationException e) {
+            PlacedOrder concurrent = recordRepository.findByIdempotencyKey(idempotencyKey)
+                    .map(PlacedOrder::of)
+                    .orElseThrow(() -> e);
+            return replay(idempotencyKey, concurrent, userId);
+        }
+    }
+
+    /**
+     * Removes records of keys older than the TTL.
+     */
+    @Scheduled(fixedDelayString = "${orders.idempotency.cleanup-interval:PT1H}")
+    public void removeExpiredRecords() {
+        Instant cutoff = Instant.now().minus(ttl);
+        Integer removed = transactionTemplate.execute(status -> recordRepository.deleteCreatedBefore(cutoff));
+        if (removed != null && removed > 0) {
+            log.info("Removed {} idempotency records created before {}", removed, cutoff);
+        }
+    }
+
+    private Order replay(String idempotencyKey, PlacedOrder placed, Long userId) {
+        if (!Objects.equals(placed.userId(), userId)) {
+            throw new InvalidIdempotencyKeyException("Idempotency key was already used for another request");
+        }
+        placedOrders.put(idempotencyKey, placed);
+        return orderRepository.findById(placed.orderId())
+                .orElseThrow(() -> new ResourceNotFoundException("Order not found!"));
+    }
+
+    private record PlacedOrder(Long userId, Long orderId) {
+        static PlacedOrder of(IdempotencyRecord record) {
+            return new PlacedOrder(record.getUserId(), record.getOrderId());
+        }
+    }
+}
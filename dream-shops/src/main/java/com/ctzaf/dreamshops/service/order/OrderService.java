@@ -1,42 +1,88 @@
 package com.ctzaf.dreamshops.service.order;
 
 import com.ctzaf.dreamshops.dto.OrderDto;
+import com.ctzaf.dreamshops.dto.OrderHistoryPageDto;
 import com.ctzaf.dreamshops.enums.OrderStatus;
+import com.ctzaf.dreamshops.exceptions.InsufficientInventoryException;
 import com.ctzaf.dreamshops.exceptions.ResourceNotFoundException;
+import com.ctzaf.dreamshops.mapper.OrderMapper;
 import com.ctzaf.dreamshops.model.Cart;
 import com.ctzaf.dreamshops.model.Order;
 import com.ctzaf.dreamshops.model.OrderItem;
-import com.ctzaf.dreamshops.model.Product;
+import com.ctzaf.dreamshops.repository.OrderItemRepository;
 import com.ctzaf.dreamshops.repository.OrderRepository;
-import com.ctzaf.dreamshops.repository.ProductRepository;
 import com.ctzaf.dreamshops.service.cart.CartService;
+import com.ctzaf.dreamshops.service.cart.ICartItemService;
+import com.ctzaf.dreamshops.service.inventory.IInventoryService;
+import com.ctzaf.dreamshops.service.search.IAutocompleteService;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class OrderService implements IOrderService {
 
+    private static final int MAX_ORDER_PAGE_SIZE = 100;
+
     private final OrderRepository orderRepository;
-    private final ProductRepository productRepository;
+    private final OrderItemRepository orderItemRepository;
     private final CartService cartService;
-    private final ModelMapper modelMapper;
+    private final ICartItemService cartItemService;
+    private final OrderMapper orderMapper;
+    private final IInventoryService inventoryService;
+    private final IAutocompleteService autocompleteService;
 
+    /**
+     * Turns the cart of the given user into an order in one transaction. The inventory of all
+     * ordered products is taken with one batch of conditional updates, and the whole order is
+     * rolled back if any product is short. Pending quantity updates of the cart are written in
+     * the same transaction and put back if it rolls back, and the ordered units only count
+     * towards autocomplete popularity once the order has committed.
+     *
+     * @param userId the id of the user placing the order
+     * @return the placed order
+     * @throws ResourceNotFoundException if the user has no cart
+     * @throws InsufficientInventoryException if any product in the cart does not have enough inventory left
+     */
+    @Transactional
     @Override
     public Order placeOrder(Long userId) {
         Cart cart = cartService.getCartByUserId(userId);
+        if (cart == null) {
+            throw new ResourceNotFoundException("Cart not found");
+        }
+        if (cartItemService.flushPendingUpdates(cart.getId())) {
+            cart = cartService.getCartByUserId(userId);
+        }
         Order order = createOrder(cart);
         List<OrderItem> orderItems = createOrderItems(order, cart);
+        Map<Long, Integer> orderedQuantities = orderItems.stream()
+                .collect(Collectors.toMap(item -> item.getProduct().getId(), OrderItem::getQuantity, Integer::sum));
+        inventoryService.reserve(orderedQuantities);
 
         order.setOrderItems(new HashSet<>(orderItems));
         order.setTotalAmount(calculateTotalAmount(orderItems));
         Order savedOrder = orderRepository.save(order);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                autocompleteService.productsOrdered(orderedQuantities);
+            }
+        });
         // After complete of the order clear the Cart
         cartService.clearCart(cart.getId());
 
@@ -51,14 +97,45 @@ public class OrderService implements IOrderService {
     }
 
     @Override
-    public List<OrderDto> getUserOrders(Long userId) {
-        List<Order> orders = orderRepository.findByUserId(userId);
-        return orders.stream().map(this::convertToDto).toList();
+    public long getOrderVersion(Long orderId) {
+        return orderRepository.findVersionByOrderId(orderId)
+                .orElseThrow(() -> new ResourceNotFoundException("Order not found!"));
+    }
+
+    /**
+     * Retrieves one page of a user's order history, newest first, with two queries: one for
+     * the orders of the page, fetching one extra row to know whether another page follows,
+     * and one for the items of those orders with their product name and brand.
+     *
+     * @param userId the id of the user
+     * @param page the zero-based page number
+     * @param size the number of orders per page, capped at 100
+     * @return the orders of the page and whether there are more
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public OrderHistoryPageDto getUserOrders(Long userId, int page, int size) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_ORDER_PAGE_SIZE);
+        Slice<OrderRepository.OrderSummary> orders = orderRepository.findSummariesByUserId(
+                userId, PageRequest.of(Math.max(page, 0), pageSize));
+        Map<Long, OrderDto> ordersById = new LinkedHashMap<>();
+        for (OrderRepository.OrderSummary summary : orders) {
+            OrderDto order = orderMapper.toDto(summary);
+            order.setUserId(userId);
+            order.setItems(new ArrayList<>());
+            ordersById.put(order.getId(), order);
+        }
+        if (!ordersById.isEmpty()) {
+            for (OrderItemRepository.OrderItemSummary item : orderItemRepository.findSummariesByOrderIdIn(ordersById.keySet())) {
+                ordersById.get(item.getOrderId()).getItems().add(orderMapper.toDto(item));
+            }
+        }
+        return new OrderHistoryPageDto(new ArrayList<>(ordersById.values()), orders.getNumber(), pageSize, orders.hasNext());
     }
 
     @Override
     public OrderDto convertToDto(Order order) {
-        return modelMapper.map(order, OrderDto.class);
+        return orderMapper.toDto(order);
     }
 
     private Order createOrder(Cart cart) {
@@ -70,17 +147,12 @@ public class OrderService implements IOrderService {
     }
 
     private List<OrderItem> createOrderItems(Order order, Cart cart) {
-        return cart.getItems().stream().map(cartItem -> {
-            Product product = cartItem.getProduct();
-            product.setInventory(product.getInventory() - cartItem.getQuantity());
-            productRepository.save(product);
-            return new OrderItem(
-                    order,
-                    product,
-                    cartItem.getQuantity(),
-                    cartItem.getUnitPrice()
-            );
-        }).toList();
+        return cart.getItems().stream().map(cartItem -> new OrderItem(
+                order,
+                cartItem.getProduct(),
+                cartItem.getQuantity(),
+                cartItem.getUnitPrice()
+        )).toList();
     }
 
     private BigDecimal calculateTotalAmount(List<OrderItem> orderItems) {
@@ -0,0 +1,8 @@
+package com.ctzaf.dreamshops.service.product;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface IProductExportService {
+    void exportCatalog(OutputStream out, boolean gzip) throws IOException;
+}
@@ -0,0 +1,11 @@
+package com.ctzaf.dreamshops.service.product;
+
+import com.ctzaf.dreamshops.dto.ProductImportResultDto;
+import com.ctzaf.dreamshops.enums.ProductImportFormat;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface IProductImportService {
+    ProductImportResultDto importProducts(InputStream input, ProductImportFormat format) throws IOException;
+}
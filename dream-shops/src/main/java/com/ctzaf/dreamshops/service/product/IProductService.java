@@ -1,26 +1,38 @@
 package com.ctzaf.dreamshops.service.product;
 
+import com.ctzaf.dreamshops.dto.CacheStatsDto;
 import com.ctzaf.dreamshops.dto.ProductDto;
+import com.ctzaf.dreamshops.dto.ProductPageDto;
 import com.ctzaf.dreamshops.model.Product;
 import com.ctzaf.dreamshops.request.AddProductRequest;
+import com.ctzaf.dreamshops.request.ProductPageRequest;
 import com.ctzaf.dreamshops.request.ProductUpdateRequest;
+import org.springframework.data.domain.Window;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface IProductService {
     Product addProduct(AddProductRequest product);
     Product getProductById(Long id);
+    Map<Long, Product> getProductsByIds(Collection<Long> ids);
     void deleteProductById(Long id);
     Product updateProduct(ProductUpdateRequest product, Long productId);
-    List<Product> getAllProducts();
-    List<Product> getProductsByCategory(String category);
-    List<Product> getProductsByBrand(String brand);
-    List<Product> getProductsByCategoryAndBrand(String category, String brand);
-    List<Product> getProductsByName(String name);
-    List<Product> getProductsByBrandAndName(String brand, String name);
+    void markProductModified(Long productId);
+    Window<Product> getAllProducts(ProductPageRequest page);
+    Window<Product> getProductsByCategory(String category, ProductPageRequest page);
+    Window<Product> getProductsByBrand(String brand, ProductPageRequest page);
+    Window<Product> getProductsByCategoryAndBrand(String category, String brand, ProductPageRequest page);
+    Window<Product> getProductsByName(String name, ProductPageRequest page);
+    Window<Product> getProductsByBrandAndName(String brand, String name, ProductPageRequest page);
     Long countProductsByBrandAndName(String brand, String name);
 
+    CacheStatsDto getCacheStats();
+
     List<ProductDto> getConvertedProducts(List<Product> products);
 
+    ProductPageDto getConvertedPage(Window<Product> products, ProductPageRequest page);
+
     ProductDto convertToDto(Product product);
 }
@@ -0,0 +1,79 @@
+package com.ctzaf.dreamshops.service.product;
+
+import com.ctzaf.dreamshops.model.Product;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache of products by id.
+ * Entries are evicted by size (W-TinyLFU) and by age, and writers invalidate or
+ * refresh the entries they touch so readers never see a product older than the last write.
+ */
+@Component
+public class ProductCache {
+
+    private final Cache<Long, Product> cache;
+
+    public ProductCache(@Value("${products.cache.maximum-size:10000}") long maximumSize,
+                        @Value("${products.cache.expire-after-write:PT10M}") Duration expireAfterWrite) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the cached product with the given id, loading it with the given loader on a miss.
+     * A loader returning null leaves the cache untouched.
+     */
+    public Product get(Long id, Function<Long, Product> loader) {
+        return cache.get(id, loader);
+    }
+
+    /**
+     * Returns the cached products with the given ids, loading all misses with a single call
+     * to the given loader. Ids the loader does not return are absent from the result.
+     */
+    public Map<Long, Product> getAll(Collection<Long> ids, Function<Set<? extends Long>, Map<Long, Product>> loader) {
+        return cache.getAll(ids, loader);
+    }
+
+    public void put(Product product) {
+        cache.put(product.getId(), product);
+    }
+
+    public void invalidate(Long id) {
+        cache.invalidate(id);
+    }
+
+    public void invalidateAll(Collection<Long> ids) {
+        cache.invalidateAll(ids);
+    }
+
+    /**
+     * Drops every cached product of the given category, whose cached copies embed the
+     * category as it was when they were loaded.
+     */
+    public void invalidateCategory(Long categoryId) {
+        cache.asMap().values().removeIf(product ->
+                product.getCategory() != null && categoryId.equals(product.getCategory().getId()));
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
@@ -0,0 +1,118 @@
+package com.ctzaf.dreamshops.service.product;
+
+import com.ctzaf.dreamshops.enums.ProductSort;
+import com.ctzaf.dreamshops.model.Product;
+import com.ctzaf.dreamshops.request.ProductPageRequest;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Translates the cursor, size and sort parameters of a product listing into a keyset scroll
+ * and encodes the position of the last product of a page into an opaque cursor.
+ * A cursor has the form {@code sort|id|sortKey}, base64 encoded, so the next page starts
+ * strictly after the last seen (sortKey, id) pair regardless of concurrent inserts.
+ * The sort key is prefixed with {@code V} when present and is {@code N} when the product has
+ * no value for the sorted property. Keyset comparisons can not order nulls, so listings sorted
+ * by price or name return the products without a key first, by id, and then the others.
+ */
+final class ProductCursor {
+
+    static final int DEFAULT_PAGE_SIZE = 20;
+    static final int MAX_PAGE_SIZE = 100;
+
+    private static final String SEPARATOR = "|";
+    private static final String NULL_KEY = "N";
+    private static final String KEY_PREFIX = "V";
+
+    private ProductCursor() {
+    }
+
+    static Limit limit(ProductPageRequest page) {
+        Integer size = page.getSize();
+        if (size == null || size < 1) {
+            return Limit.of(DEFAULT_PAGE_SIZE);
+        }
+        return Limit.of(Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * The sort encoded in the cursor wins over the requested one, since a keyset
+     * position is only meaningful for the ordering it was taken from.
+     */
+    static ProductSort sortOf(ProductPageRequest page) {
+        if (page.getCursor() != null) {
+            return ProductSort.valueOf(decode(page.getCursor())[0]);
+        }
+        return page.getSort() == null ? ProductSort.ID : ProductSort.fromName(page.getSort());
+    }
+
+    static Sort sort(ProductSort productSort) {
+        Sort sort = Sort.by(productSort.getProperty());
+        return productSort == ProductSort.ID ? sort : sort.and(Sort.by(ProductSort.ID.getProperty()));
+    }
+
+    /**
+     * Whether the page continues among the products that have no value for the sorted property.
+     * This is also the case for the first page of a listing sorted by price or name.
+     */
+    static boolean inNullKeys(ProductPageRequest page) {
+        if (page.getCursor() == null) {
+            return true;
+        }
+        return NULL_KEY.equals(decode(page.getCursor())[2]);
+    }
+
+    /**
+     * The position after the cursor. For a cursor taken among products without a sort key
+     * only the id is used, since those products are ordered by id alone.
+     */
+    static KeysetScrollPosition position(ProductPageRequest page) {
+        if (page.getCursor() == null) {
+            return ScrollPosition.keyset();
+        }
+        String[] parts = decode(page.getCursor());
+        ProductSort productSort = ProductSort.valueOf(parts[0]);
+        Map<String, Object> keys = new LinkedHashMap<>();
+        if (productSort != ProductSort.ID && !NULL_KEY.equals(parts[2])) {
+            keys.put(productSort.getProperty(), productSort.parseKey(parts[2].substring(KEY_PREFIX.length())));
+        }
+        keys.put(ProductSort.ID.getProperty(), Long.valueOf(parts[1]));
+        return ScrollPosition.forward(keys);
+    }
+
+    static String next(Window<Product> window, ProductSort productSort) {
+        if (!window.hasNext() || window.isEmpty()) {
+            return null;
+        }
+        Product last = window.getContent().get(window.size() - 1);
+        Object sortKey = switch (productSort) {
+            case ID -> last.getId();
+            case PRICE -> last.getPrice() == null ? null : last.getPrice().toPlainString();
+            case NAME -> last.getName();
+        };
+        String cursor = productSort.name() + SEPARATOR + last.getId() + SEPARATOR
+                + (sortKey == null ? NULL_KEY : KEY_PREFIX + sortKey);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decode(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = decoded.split("\\|", 3);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return parts;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
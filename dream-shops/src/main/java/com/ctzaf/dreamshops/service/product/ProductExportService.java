@@ -0,0 +1,98 @@
+package com.ctzaf.dreamshops.service.product;
+
+import com.ctzaf.dreamshops.dto.ProductDto;
+import com.ctzaf.dreamshops.model.Product;
+import com.ctzaf.dreamshops.repository.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the whole catalog as newline delimited JSON.
+ * Products are read in keyset chunks, each converted with a single image query, written,
+ * flushed and then dropped from the persistence context, so memory stays bounded by the
+ * chunk size and the client receives the first chunk as soon as it is read.
+ */
+@Service
+public class ProductExportService implements IProductExportService {
+
+    private static final int CHUNK_SIZE = 500;
+    private static final byte NEW_LINE = '\n';
+
+    private final ProductRepository productRepository;
+    private final IProductService productService;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectWriter writer;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ProductExportService(ProductRepository productRepository,
+                                IProductService productService,
+                                PlatformTransactionManager transactionManager,
+                                ObjectMapper objectMapper) {
+        this.productRepository = productRepository;
+        this.productService = productService;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.writer = objectMapper.writerFor(ProductDto.class);
+    }
+
+    /**
+     * Writes every product to the given stream, one JSON document per line.
+     *
+     * @param out the stream to write to, left open once the catalog is written
+     * @param gzip whether to gzip the written lines
+     * @throws IOException if writing to the stream fails
+     */
+    @Override
+    public void exportCatalog(OutputStream out, boolean gzip) throws IOException {
+        OutputStream target = gzip ? new GZIPOutputStream(out, 8192, true) : out;
+        ScrollPosition position = ScrollPosition.keyset();
+        boolean hasNext = true;
+        try {
+            while (hasNext) {
+                ScrollPosition chunkPosition = position;
+                Window<Product> chunk = readOnlyTransaction.execute(status -> writeChunk(chunkPosition, target));
+                hasNext = chunk.hasNext() && !chunk.isEmpty();
+                if (hasNext) {
+                    position = chunk.positionAt(chunk.size() - 1);
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (target instanceof GZIPOutputStream gzipStream) {
+            gzipStream.finish();
+        }
+        target.flush();
+    }
+
+    private Window<Product> writeChunk(ScrollPosition position, OutputStream out) {
+        Window<Product> chunk = productRepository.findAllBy(position, Limit.of(CHUNK_SIZE), Sort.by("id"));
+        try {
+            for (ProductDto product : productService.getConvertedProducts(chunk.getContent())) {
+                out.write(writer.writeValueAsBytes(product));
+                out.write(NEW_LINE);
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        entityManager.clear();
+        return chunk;
+    }
+}
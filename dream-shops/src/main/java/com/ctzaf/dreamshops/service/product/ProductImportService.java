@@ -0,0 +1,296 @@
+package com.ctzaf.dreamshops.service.product;
+
+import com.ctzaf.dreamshops.dto.ProductImportErrorDto;
+import com.ctzaf.dreamshops.dto.ProductImportResultDto;
+import com.ctzaf.dreamshops.enums.ProductImportFormat;
+import com.ctzaf.dreamshops.model.Category;
+import com.ctzaf.dreamshops.model.Product;
+import com.ctzaf.dreamshops.request.ProductImportRow;
+import com.ctzaf.dreamshops.service.category.ICategoryService;
+import com.ctzaf.dreamshops.service.search.IAutocompleteService;
+import com.ctzaf.dreamshops.service.search.IProductSearchService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Imports products from a CSV or NDJSON stream.
+ * Rows are read one line at a time and written in JDBC batches, each in its own transaction.
+ * Categories are resolved through a lookup loaded once per import, duplicates are checked
+ * per batch with a single query, and rows that can not be imported are reported by line number.
+ * The products of each batch are added to the search index and autocomplete once the batch has
+ * committed, so the import never rescans the catalog.
+ */
+@Service
+public class ProductImportService implements IProductImportService {
+
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private static final String INSERT_PRODUCT =
+            "insert into product (name, brand, price, inventory, description, category_id, version) " +
+            "values (:name, :brand, :price, :inventory, :description, :categoryId, 0)";
+    private static final String SELECT_EXISTING =
+            "select name, brand from product where name in (:names)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ICategoryService categoryService;
+    private final IProductSearchService productSearchService;
+    private final IAutocompleteService autocompleteService;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+
+    public ProductImportService(NamedParameterJdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate,
+                                ICategoryService categoryService,
+                                IProductSearchService productSearchService,
+                                IAutocompleteService autocompleteService,
+                                ObjectMapper objectMapper,
+                                @Value("${products.import.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.categoryService = categoryService;
+        this.productSearchService = productSearchService;
+        this.autocompleteService = autocompleteService;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Imports all the products of the given stream.
+     * CSV input must start with a header naming the columns name, brand, price, inventory,
+     * description and category; quoted fields may not span several lines.
+     * NDJSON input holds one product object per line.
+     *
+     * @param input the stream to read the products from
+     * @param format the format of the stream
+     * @return the number of imported and failed rows, with the errors of the failed ones
+     * @throws IOException if the stream can not be read
+     */
+    @Override
+    public ProductImportResultDto importProducts(InputStream input, ProductImportFormat format) throws IOException {
+        ImportRun run = new ImportRun();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        Map<String, Integer> columns = null;
+        List<PendingRow> batch = new ArrayList<>(batchSize);
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            if (format == ProductImportFormat.CSV && columns == null) {
+                columns = parseHeader(line);
+                continue;
+            }
+            try {
+                ProductImportRow row = format == ProductImportFormat.CSV
+                        ? parseCsvRow(line, columns)
+                        : objectMapper.readValue(line, ProductImportRow.class);
+                validate(row);
+                batch.add(new PendingRow(lineNumber, row));
+            } catch (Exception e) {
+                run.fail(lineNumber, e.getMessage());
+            }
+            if (batch.size() == batchSize) {
+                run.write(batch);
+                batch.clear();
+            }
+        }
+        run.write(batch);
+        return run.result;
+    }
+
+    private record PendingRow(long line, ProductImportRow row) {
+    }
+
+    private class ImportRun {
+        private final ProductImportResultDto result = new ProductImportResultDto();
+        private final Set<String> seenProducts = new HashSet<>();
+        private final Map<String, Long> categoryIds = categoryService.getAllCategories()
+                .stream()
+                .collect(Collectors.toMap(Category::getName, Category::getId, (first, second) -> first));
+
+        private void write(List<PendingRow> batch) {
+            if (batch.isEmpty()) {
+                return;
+            }
+            Set<String> existing = findExisting(batch);
+            Set<String> batchKeys = new HashSet<>();
+            List<PendingRow> accepted = new ArrayList<>(batch.size());
+            for (PendingRow pending : batch) {
+                String key = productKey(pending.row().getName(), pending.row().getBrand());
+                if (existing.contains(key) || seenProducts.contains(key) || !batchKeys.add(key)) {
+                    fail(pending.line(), pending.row().getBrand() + " " + pending.row().getName() + " already exists");
+                } else {
+                    accepted.add(pending);
+                }
+            }
+            if (accepted.isEmpty()) {
+                return;
+            }
+            List<Product> products;
+            try {
+                products = insert(accepted);
+            } catch (Exception e) {
+                accepted.forEach(pending -> fail(pending.line(), "Batch failed: " + e.getMessage()));
+                return;
+            }
+            // Only rows that were written count as seen, so a later row may retry a failed one.
+            seenProducts.addAll(batchKeys);
+            result.setImported(result.getImported() + accepted.size());
+            for (Product product : products) {
+                productSearchService.index(product);
+                autocompleteService.productSaved(product);
+            }
+        }
+
+        /**
+         * Inserts the given rows in one transaction and returns them as products carrying
+         * their generated ids.
+         */
+        private List<Product> insert(List<PendingRow> accepted) {
+            MapSqlParameterSource[] parameters = accepted.stream().map(pending -> {
+                ProductImportRow row = pending.row();
+                return new MapSqlParameterSource()
+                        .addValue("name", row.getName())
+                        .addValue("brand", row.getBrand())
+                        .addValue("price", row.getPrice())
+                        .addValue("inventory", row.getInventory())
+                        .addValue("description", row.getDescription())
+                        .addValue("categoryId", categoryId(row.getCategory()));
+            }).toArray(MapSqlParameterSource[]::new);
+            KeyHolder keys = new GeneratedKeyHolder();
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(INSERT_PRODUCT, parameters, keys, new String[]{"id"}));
+            List<Map<String, Object>> keyList = keys.getKeyList();
+            List<Product> products = new ArrayList<>(accepted.size());
+            for (int i = 0; i < accepted.size(); i++) {
+                ProductImportRow row = accepted.get(i).row();
+                Product product = new Product(row.getName(), row.getBrand(), row.getPrice(), row.getInventory(),
+                        row.getDescription(), null);
+                product.setId(((Number) keyList.get(i).values().iterator().next()).longValue());
+                products.add(product);
+            }
+            return products;
+        }
+
+        private Set<String> findExisting(List<PendingRow> batch) {
+            Set<String> names = batch.stream().map(pending -> pending.row().getName()).collect(Collectors.toSet());
+            Set<String> existing = new HashSet<>();
+            jdbcTemplate.query(SELECT_EXISTING, Map.of("names", names), (RowCallbackHandler) resultSet ->
+                    existing.add(productKey(resultSet.getString("name"), resultSet.getString("brand"))));
+            return existing;
+        }
+
+        private Long categoryId(String name) {
+            return categoryIds.computeIfAbsent(name,
+                    categoryName -> categoryService.addCategory(new Category(categoryName)).getId());
+        }
+
+        private void fail(long line, String message) {
+            result.setFailed(result.getFailed() + 1);
+            if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+                result.getErrors().add(new ProductImportErrorDto(line, message));
+            }
+        }
+    }
+
+    private static String productKey(String name, String brand) {
+        return name + "\u0000" + brand;
+    }
+
+    private static void validate(ProductImportRow row) {
+        if (isBlank(row.getName()) || isBlank(row.getBrand()) || isBlank(row.getCategory())) {
+            throw new IllegalArgumentException("name, brand and category are required");
+        }
+        if (row.getPrice() == null || row.getPrice().signum() < 0) {
+            throw new IllegalArgumentException("price can not be negative");
+        }
+        if (row.getInventory() < 0) {
+            throw new IllegalArgumentException("inventory can not be negative");
+        }
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static Map<String, Integer> parseHeader(String line) {
+        List<String> names = splitCsv(line);
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        return columns;
+    }
+
+    private static ProductImportRow parseCsvRow(String line, Map<String, Integer> columns) {
+        List<String> fields = splitCsv(line);
+        ProductImportRow row = new ProductImportRow();
+        row.setName(field(fields, columns, "name"));
+        row.setBrand(field(fields, columns, "brand"));
+        String price = field(fields, columns, "price");
+        row.setPrice(isBlank(price) ? null : new BigDecimal(price.trim()));
+        String inventory = field(fields, columns, "inventory");
+        row.setInventory(isBlank(inventory) ? 0 : Integer.parseInt(inventory.trim()));
+        row.setDescription(field(fields, columns, "description"));
+        row.setCategory(field(fields, columns, "category"));
+        return row;
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        return index == null || index >= fields.size() ? null : fields.get(index);
+    }
+
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+}
@@ -1,33 +1,64 @@
 package com.ctzaf.dreamshops.service.product;
 
+import com.ctzaf.dreamshops.dto.CacheStatsDto;
 import com.ctzaf.dreamshops.dto.ImageDto;
 import com.ctzaf.dreamshops.dto.ProductDto;
+import com.ctzaf.dreamshops.dto.ProductPageDto;
+import com.ctzaf.dreamshops.enums.ProductSort;
 import com.ctzaf.dreamshops.exceptions.AlreadyExistsException;
 import com.ctzaf.dreamshops.exceptions.ProductNotFoundException;
 import com.ctzaf.dreamshops.exceptions.ResourceNotFoundException;
+import com.ctzaf.dreamshops.mapper.ImageMapper;
+import com.ctzaf.dreamshops.mapper.ProductMapper;
 import com.ctzaf.dreamshops.model.Category;
-import com.ctzaf.dreamshops.model.Image;
 import com.ctzaf.dreamshops.model.Product;
 import com.ctzaf.dreamshops.repository.CategoryRepository;
 import com.ctzaf.dreamshops.repository.ImageRepository;
 import com.ctzaf.dreamshops.repository.ProductRepository;
 import com.ctzaf.dreamshops.request.AddProductRequest;
+import com.ctzaf.dreamshops.request.ProductPageRequest;
 import com.ctzaf.dreamshops.request.ProductUpdateRequest;
+import com.ctzaf.dreamshops.service.cart.ICartRepricingService;
+import com.ctzaf.dreamshops.service.category.ICategoryService;
+import com.ctzaf.dreamshops.service.inventory.IInventoryService;
+import com.ctzaf.dreamshops.service.search.IAutocompleteService;
+import com.ctzaf.dreamshops.service.search.IProductSearchService;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class ProductService implements IProductService {
 
     private final ProductRepository productRepository;
+    private final ICategoryService categoryService;
     private final CategoryRepository categoryRepository;
-    private final ModelMapper modelMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ProductMapper productMapper;
+    private final ImageMapper imageMapper;
     private final ImageRepository imageRepository;
+    private final ProductCache productCache;
+    private final IProductSearchService productSearchService;
+    private final IAutocompleteService autocompleteService;
+    private final ICartRepricingService cartRepricingService;
+    private final IInventoryService inventoryService;
 
     /**
      * Add a new product. If the category of the product does not exist in the database
@@ -46,13 +77,17 @@ public class ProductService implements IProductService {
             throw new AlreadyExistsException(request.getBrand()+" "+request.getName()+" already exists, you may update this product instead!");
         }
 
-        Category category = Optional.ofNullable(categoryRepository.findByName(request.getCategory().getName()))
+        Category category = Optional.ofNullable(categoryService.getCategoryByName(request.getCategory().getName()))
                 .orElseGet(() -> {
                     Category newCategory = new Category(request.getCategory().getName());
-                    return categoryRepository.save(newCategory);
+                    return categoryService.addCategory(newCategory);
                 });
         request.setCategory(category);
-        return productRepository.save(createProduct(request, category));
+        Product savedProduct = transactionTemplate.execute(status ->
+                productRepository.save(createProduct(request, managedCategory(category))));
+        productSearchService.index(savedProduct);
+        autocompleteService.productSaved(savedProduct);
+        return savedProduct;
     }
 
     private boolean productExists(String name, String brand) {
@@ -78,17 +113,35 @@ public class ProductService implements IProductService {
     }
 
     /**
-     * Retrieves a product by id.
+     * Retrieves a product by id, from the product cache when possible.
      * @param id the id of the product to be retrieved
      * @return the product with the given id
      * @throws ResourceNotFoundException if no product is found with the given id
      */
     @Override
     public Product getProductById(Long id) {
-        return productRepository.findById(id)
+        return Optional.ofNullable(productCache.get(id, key -> productRepository.findById(key).orElse(null)))
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
     }
 
+    /**
+     * Retrieves the products with the given ids, answering cache hits from memory and
+     * loading all misses with one query.
+     * @param ids the ids of the products to be retrieved
+     * @return the products found, by id
+     * @throws ResourceNotFoundException if any of the ids does not match a product
+     */
+    @Override
+    public Map<Long, Product> getProductsByIds(Collection<Long> ids) {
+        Map<Long, Product> products = productCache.getAll(ids, missing -> productRepository.findAllById(List.copyOf(missing))
+                .stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity())));
+        if (products.size() < ids.stream().distinct().count()) {
+            throw new ResourceNotFoundException("Product not found");
+        }
+        return products;
+    }
+
     /**
      * Deletes a product by its id.
      * @param id the id of the product to be deleted
@@ -99,10 +152,17 @@ public class ProductService implements IProductService {
         productRepository.findById(id)
                 .ifPresentOrElse(productRepository::delete,
                         () -> {throw new ResourceNotFoundException("Product not found");});
+        inventoryService.evict(id);
+        productCache.invalidate(id);
+        productSearchService.remove(id);
+        autocompleteService.productDeleted(id);
     }
 
     /**
      * Updates an existing product with new details provided in the ProductUpdateRequest.
+     * If the price changed, the carts holding the product are queued for repricing in the
+     * same transaction.
+     * Inventory held in memory is reloaded once the update has committed.
      *
      * @param product the request containing the new product details
      * @param productId the id of the product to be updated
@@ -111,10 +171,35 @@ public class ProductService implements IProductService {
      */
     @Override
     public Product updateProduct(ProductUpdateRequest product, Long productId) {
-        return productRepository.findById(productId)
-                .map(existingProduct -> updateExistingProduct(existingProduct, product))
-                .map(productRepository::save)
+        Product existingProduct = productRepository.findById(productId)
                 .orElseThrow(() -> new ProductNotFoundException("Product not found"));
+        BigDecimal previousPrice = existingProduct.getPrice();
+        Product savedProduct = transactionTemplate.execute(status -> {
+            Product saved = productRepository.save(updateExistingProduct(existingProduct, product));
+            if (previousPrice == null || saved.getPrice() == null
+                    || previousPrice.compareTo(saved.getPrice()) != 0) {
+                cartRepricingService.productPriceChanged(productId);
+            }
+            return saved;
+        });
+        inventoryService.evict(productId);
+        productCache.put(savedProduct);
+        productSearchService.index(savedProduct);
+        autocompleteService.productSaved(savedProduct);
+        return savedProduct;
+    }
+
+    /**
+     * Bumps the version of a product whose representation changed without the product
+     * row itself changing, such as when its images are added, replaced or removed.
+     *
+     * @param productId the id of the modified product
+     */
+    @Transactional
+    @Override
+    public void markProductModified(Long productId) {
+        productRepository.incrementVersion(productId);
+        productCache.invalidate(productId);
     }
 
     /**
@@ -131,75 +216,143 @@ public class ProductService implements IProductService {
         existingProduct.setInventory(request.getInventory());
         existingProduct.setDescription(request.getDescription());
 
-        Category category = categoryRepository.findByName(request.getCategory().getName());
-        existingProduct.setCategory(category);
+        Category category = categoryService.getCategoryByName(request.getCategory().getName());
+        existingProduct.setCategory(managedCategory(category));
 
         return existingProduct;
     }
 
     /**
-     * Retrieves all products from the database.
+     * Returns a reference to the given category bound to the current transaction. Categories
+     * come from the shared category snapshot and are detached, so cascading the product
+     * save to them directly would fail or write back stale state.
+     */
+    private Category managedCategory(Category category) {
+        return category == null ? null : categoryRepository.getReferenceById(category.getId());
+    }
+
+    /**
+     * Retrieves a page of all products from the database.
      *
-     * @return a list of all products in the database
+     * @param page the cursor, size and sort of the page to retrieve
+     * @return a window of products starting after the given cursor
      */
     @Override
-    public List<Product> getAllProducts() {
-        return productRepository.findAll();
+    public Window<Product> getAllProducts(ProductPageRequest page) {
+        return scroll((root, query, cb) -> cb.conjunction(), page);
     }
 
     /**
-     * Retrieves all products from a category.
+     * Retrieves a page of products from a category.
      *
      * @param category the name of the category to retrieve products from
-     * @return a list of all products in the given category
+     * @param page the cursor, size and sort of the page to retrieve
+     * @return a window of products in the given category
      */
     @Override
-    public List<Product> getProductsByCategory(String category) {
-        return productRepository.findByCategoryName(category);
+    public Window<Product> getProductsByCategory(String category, ProductPageRequest page) {
+        return scroll(hasCategory(category), page);
     }
 
     /**
-     * Retrieves all products from a specific brand.
+     * Retrieves a page of products from a specific brand.
      *
      * @param brand the name of the brand to retrieve products from
-     * @return a list of all products in the given brand
+     * @param page the cursor, size and sort of the page to retrieve
+     * @return a window of products in the given brand
      */
     @Override
-    public List<Product> getProductsByBrand(String brand) {
-        return productRepository.findByBrand(brand);
+    public Window<Product> getProductsByBrand(String brand, ProductPageRequest page) {
+        return scroll(hasBrand(brand), page);
     }
 
     /**
-     * Retrieves all products from a category and brand.
+     * Retrieves a page of products from a category and brand.
      * @param category the name of the category to retrieve products from
      * @param brand the name of the brand to retrieve products from
-     * @return a list of all products in the given category and brand
+     * @param page the cursor, size and sort of the page to retrieve
+     * @return a window of products in the given category and brand
      */
     @Override
-    public List<Product> getProductsByCategoryAndBrand(String category, String brand) {
-        return productRepository.findByCategoryNameAndBrand(category, brand);
+    public Window<Product> getProductsByCategoryAndBrand(String category, String brand, ProductPageRequest page) {
+        return scroll(hasCategory(category).and(hasBrand(brand)), page);
     }
 
     /**
-     * Retrieves all products with the specified name.
+     * Retrieves a page of products with the specified name.
      *
      * @param name the name of the products to retrieve
-     * @return a list of products that match the given name
+     * @param page the cursor, size and sort of the page to retrieve
+     * @return a window of products that match the given name
      */
     @Override
-    public List<Product> getProductsByName(String name) {
-        return productRepository.findByName(name);
+    public Window<Product> getProductsByName(String name, ProductPageRequest page) {
+        return scroll(hasName(name), page);
     }
 
     /**
-     * Retrieves all products from a specific brand and with a specific name.
+     * Retrieves a page of products from a specific brand and with a specific name.
      * @param brand the name of the brand to retrieve products from
      * @param name the name of the products to retrieve
-     * @return a list of all products in the given brand with the given name
+     * @param page the cursor, size and sort of the page to retrieve
+     * @return a window of products in the given brand with the given name
      */
     @Override
-    public List<Product> getProductsByBrandAndName(String brand, String name) {
-        return productRepository.findByBrandAndName(brand, name);
+    public Window<Product> getProductsByBrandAndName(String brand, String name, ProductPageRequest page) {
+        return scroll(hasBrand(brand).and(hasName(name)), page);
+    }
+
+    /**
+     * Retrieves the page of products matching the given filter that follows the cursor of the page.
+     * For a sort by price or name, products without a value for the sorted property come first,
+     * ordered by id, followed by the others in keyset order, since keyset comparisons can not
+     * order nulls. A page that exhausts the products without a key is topped up from the others.
+     */
+    private Window<Product> scroll(Specification<Product> filter, ProductPageRequest page) {
+        ProductSort sort = ProductCursor.sortOf(page);
+        Limit limit = ProductCursor.limit(page);
+        if (sort == ProductSort.ID) {
+            return scroll(filter, ProductCursor.position(page), limit, ProductCursor.sort(sort));
+        }
+        Specification<Product> withKey = (root, query, cb) -> cb.isNotNull(root.get(sort.getProperty()));
+        if (!ProductCursor.inNullKeys(page)) {
+            return scroll(filter.and(withKey), ProductCursor.position(page), limit, ProductCursor.sort(sort));
+        }
+        Specification<Product> withoutKey = (root, query, cb) -> cb.isNull(root.get(sort.getProperty()));
+        Window<Product> withoutKeys = scroll(filter.and(withoutKey), ProductCursor.position(page), limit,
+                ProductCursor.sort(ProductSort.ID));
+        if (withoutKeys.hasNext()) {
+            return withoutKeys;
+        }
+        int remaining = limit.max() - withoutKeys.size();
+        if (remaining == 0) {
+            boolean more = productRepository.exists(filter.and(withKey));
+            return Window.from(withoutKeys.getContent(), withoutKeys::positionAt, more);
+        }
+        Window<Product> withKeys = scroll(filter.and(withKey), ScrollPosition.keyset(), Limit.of(remaining),
+                ProductCursor.sort(sort));
+        List<Product> content = new ArrayList<>(withoutKeys.getContent());
+        content.addAll(withKeys.getContent());
+        int split = withoutKeys.size();
+        return Window.from(content,
+                index -> index < split ? withoutKeys.positionAt(index) : withKeys.positionAt(index - split),
+                withKeys.hasNext());
+    }
+
+    private Window<Product> scroll(Specification<Product> filter, ScrollPosition position, Limit limit, Sort sort) {
+        return productRepository.findBy(filter, query -> query.sortBy(sort).limit(limit.max()).scroll(position));
+    }
+
+    private static Specification<Product> hasCategory(String category) {
+        return (root, query, cb) -> cb.equal(root.get("category").get("name"), category);
+    }
+
+    private static Specification<Product> hasBrand(String brand) {
+        return (root, query, cb) -> cb.equal(root.get("brand"), brand);
+    }
+
+    private static Specification<Product> hasName(String name) {
+        return (root, query, cb) -> cb.equal(root.get("name"), name);
     }
 
     /**
@@ -213,15 +366,53 @@ public class ProductService implements IProductService {
         return productRepository.countByBrandAndName(brand, name);
     }
 
+    /**
+     * Retrieves the hit, miss and eviction counters of the product cache.
+     *
+     * @return a snapshot of the product cache statistics
+     */
+    @Override
+    public CacheStatsDto getCacheStats() {
+        CacheStats stats = productCache.stats();
+        return new CacheStatsDto(productCache.size(), stats.hitCount(), stats.missCount(),
+                stats.hitRate(), stats.evictionCount());
+    }
+
     /**
      * Converts a list of Product objects to a list of ProductDto objects.
+     * The images of all the given products are loaded with a single query and
+     * grouped by product id, instead of querying the images of each product separately.
      *
      * @param products the list of Product objects to be converted
      * @return a list of ProductDto objects converted from the given products
      */
     @Override
     public List<ProductDto> getConvertedProducts(List<Product> products) {
-        return products.stream().map(this::convertToDto).toList();
+        if (products.isEmpty()) {
+            return List.of();
+        }
+        List<Long> productIds = products.stream().map(Product::getId).toList();
+        Map<Long, List<ImageDto>> imagesByProductId = imageRepository.findByProductIdIn(productIds)
+                .stream()
+                .collect(Collectors.groupingBy(image -> image.getProduct().getId(),
+                        Collectors.mapping(imageMapper::toDto, Collectors.toList())));
+        return products.stream()
+                .map(product -> toProductDto(product, imagesByProductId.getOrDefault(product.getId(), List.of())))
+                .toList();
+    }
+
+    /**
+     * Converts a window of products to a page of ProductDto objects together with
+     * the cursor of the next page.
+     *
+     * @param products the window of products to be converted
+     * @param page the page request the window was retrieved with
+     * @return the converted page
+     */
+    @Override
+    public ProductPageDto getConvertedPage(Window<Product> products, ProductPageRequest page) {
+        String nextCursor = ProductCursor.next(products, ProductCursor.sortOf(page));
+        return new ProductPageDto(getConvertedProducts(products.getContent()), nextCursor, nextCursor != null);
     }
 
     /**
@@ -234,12 +425,16 @@ public class ProductService implements IProductService {
      */
     @Override
     public ProductDto convertToDto(Product product) {
-        ProductDto productDto = modelMapper.map(product, ProductDto.class);
-        List<Image> images = imageRepository.findByProductId(product.getId());
-        List<ImageDto> imageDtos = images.stream()
-                .map(image -> modelMapper.map(image, ImageDto.class))
+        List<ImageDto> imageDtos = imageRepository.findByProductId(product.getId())
+                .stream()
+                .map(imageMapper::toDto)
                 .toList();
-        productDto.setImages(imageDtos);
+        return toProductDto(product, imageDtos);
+    }
+
+    private ProductDto toProductDto(Product product, List<ImageDto> images) {
+        ProductDto productDto = productMapper.toDto(product);
+        productDto.setImages(images);
         return productDto;
     }
 }
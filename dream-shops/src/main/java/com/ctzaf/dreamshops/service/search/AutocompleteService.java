@@ -0,0 +1,191 @@
+package com.ctzaf.dreamshops.service.search;
+
+import com.ctzaf.dreamshops.dto.SuggestionDto;
+import com.ctzaf.dreamshops.enums.SuggestionType;
+import com.ctzaf.dreamshops.model.Product;
+import com.ctzaf.dreamshops.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Type-ahead over product names and brands.
+ * The weight of a suggestion is the number of products carrying that name or brand plus the
+ * number of units of those products ordered, so popular products surface first. Lookups are
+ * served lock-free from a trie; mutations adjust only the suggestions of the affected product.
+ */
+@Service
+@RequiredArgsConstructor
+public class AutocompleteService implements IAutocompleteService, ApplicationListener<ApplicationReadyEvent> {
+
+    private static final int TOP_K = 10;
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private final ProductRepository productRepository;
+
+    private final Object mutationLock = new Object();
+    private final Object rebuildLock = new Object();
+    private volatile State state = new State();
+    // Mutations applied while a rebuild is reading the catalog, replayed onto the rebuilt state.
+    private List<Consumer<State>> mutationsDuringRebuild;
+
+    private record IndexedProduct(String name, String brand, long orderedUnits) {
+    }
+
+    private record Counter(String text, long products, long orderedUnits) {
+        long weight() {
+            return products + orderedUnits;
+        }
+    }
+
+    /**
+     * Everything behind one trie: the indexed version of each product and the counters
+     * each suggestion weight is derived from.
+     */
+    private static final class State {
+        private final SuggestionTrie trie = new SuggestionTrie(TOP_K);
+        private final Map<Long, IndexedProduct> products = new HashMap<>();
+        private final Map<String, Counter> counters = new HashMap<>();
+
+        void put(Long productId, IndexedProduct product) {
+            IndexedProduct previous = product == null ? products.remove(productId) : products.put(productId, product);
+            if (previous != null) {
+                adjust(SuggestionType.NAME, previous.name(), -1, -previous.orderedUnits());
+                adjust(SuggestionType.BRAND, previous.brand(), -1, -previous.orderedUnits());
+            }
+            if (product != null) {
+                adjust(SuggestionType.NAME, product.name(), 1, product.orderedUnits());
+                adjust(SuggestionType.BRAND, product.brand(), 1, product.orderedUnits());
+            }
+        }
+
+        private void adjust(SuggestionType type, String text, long products, long orderedUnits) {
+            if (text == null || text.isBlank()) {
+                return;
+            }
+            String key = text.toLowerCase(Locale.ROOT);
+            Counter counter = counters.merge(type + ":" + key, new Counter(text, products, orderedUnits),
+                    (current, delta) -> new Counter(current.text(),
+                            current.products() + delta.products(), current.orderedUnits() + delta.orderedUnits()));
+            if (counter.products() <= 0) {
+                counters.remove(type + ":" + key);
+                trie.put(key, text, type, 0);
+            } else {
+                trie.put(key, counter.text(), type, counter.weight());
+            }
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        rebuild();
+    }
+
+    /**
+     * Suggests product names and brands starting with the given prefix.
+     *
+     * @param prefix the text typed so far
+     * @param limit the maximum number of suggestions, clamped to between 1 and the number
+     *              of suggestions cached per prefix
+     * @return the most popular matching suggestions first
+     */
+    @Override
+    public List<SuggestionDto> suggest(String prefix, int limit) {
+        if (prefix == null || prefix.isBlank()) {
+            return List.of();
+        }
+        return state.trie.top(prefix.trim().toLowerCase(Locale.ROOT), Math.max(1, Math.min(limit, TOP_K)))
+                .stream()
+                .map(suggestion -> new SuggestionDto(suggestion.text(), suggestion.type()))
+                .toList();
+    }
+
+    @Override
+    public void productSaved(Product product) {
+        apply(current -> {
+            IndexedProduct previous = current.products.get(product.getId());
+            long orderedUnits = previous == null ? 0 : previous.orderedUnits();
+            current.put(product.getId(), new IndexedProduct(product.getName(), product.getBrand(), orderedUnits));
+        });
+    }
+
+    @Override
+    public void productDeleted(Long productId) {
+        apply(current -> current.put(productId, null));
+    }
+
+    @Override
+    public void productsOrdered(Map<Long, Integer> quantities) {
+        apply(current -> quantities.forEach((productId, quantity) -> {
+            IndexedProduct product = current.products.get(productId);
+            if (product != null) {
+                current.put(productId, new IndexedProduct(product.name(), product.brand(), product.orderedUnits() + quantity));
+            }
+        }));
+    }
+
+    private void apply(Consumer<State> mutation) {
+        synchronized (mutationLock) {
+            mutation.accept(state);
+            if (mutationsDuringRebuild != null) {
+                mutationsDuringRebuild.add(mutation);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the suggestions from the catalog and the ordered quantities in the database.
+     * The new trie is built without blocking mutations, which are recorded meanwhile and
+     * replayed onto it before it is swapped in.
+     */
+    @Override
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            synchronized (mutationLock) {
+                mutationsDuringRebuild = new ArrayList<>();
+            }
+            try {
+                State rebuilt = load();
+                synchronized (mutationLock) {
+                    mutationsDuringRebuild.forEach(mutation -> mutation.accept(rebuilt));
+                    state = rebuilt;
+                }
+            } finally {
+                synchronized (mutationLock) {
+                    mutationsDuringRebuild = null;
+                }
+            }
+        }
+    }
+
+    private State load() {
+        Map<Long, Long> orderedUnits = new HashMap<>();
+        for (Object[] row : productRepository.sumOrderedQuantities()) {
+            orderedUnits.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+        State loaded = new State();
+        ScrollPosition position = ScrollPosition.keyset();
+        Window<Product> window;
+        do {
+            window = productRepository.findAllBy(position, Limit.of(REBUILD_BATCH_SIZE), Sort.by("id"));
+            window.forEach(product -> loaded.put(product.getId(), new IndexedProduct(
+                    product.getName(), product.getBrand(), orderedUnits.getOrDefault(product.getId(), 0L))));
+            if (!window.isEmpty()) {
+                position = window.positionAt(window.size() - 1);
+            }
+        } while (window.hasNext());
+        return loaded;
+    }
+}
@@ -0,0 +1,15 @@
+package com.ctzaf.dreamshops.service.search;
+
+import com.ctzaf.dreamshops.dto.SuggestionDto;
+import com.ctzaf.dreamshops.model.Product;
+
+import java.util.List;
+import java.util.Map;
+
+public interface IAutocompleteService {
+    List<SuggestionDto> suggest(String prefix, int limit);
+    void productSaved(Product product);
+    void productDeleted(Long productId);
+    void productsOrdered(Map<Long, Integer> quantities);
+    void rebuild();
+}
@@ -0,0 +1,12 @@
+package com.ctzaf.dreamshops.service.search;
+
+import com.ctzaf.dreamshops.model.Product;
+
+import java.util.List;
+
+public interface IProductSearchService {
+    List<Product> search(String query, int limit);
+    void index(Product product);
+    void remove(Long productId);
+    void rebuild();
+}
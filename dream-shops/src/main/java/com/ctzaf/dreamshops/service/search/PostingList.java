@@ -0,0 +1,131 @@
+package com.ctzaf.dreamshops.service.search;
+
+import java.util.Arrays;
+
+/**
+ * Posting list of a single term, kept sorted by document id and compressed as
+ * variable-length (doc id delta, weight) pairs. Mutations decode, patch and re-encode
+ * the list, which is cheap for the single-document updates the index receives; bulk loads
+ * go through {@link #of} so each list is encoded once.
+ */
+final class PostingList {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private byte[] data = EMPTY;
+    private int size;
+
+    /**
+     * Creates a posting list from the first {@code count} entries of the given arrays,
+     * which must be sorted by strictly ascending document id.
+     */
+    static PostingList of(long[] docIds, int[] weights, int count) {
+        PostingList postingList = new PostingList();
+        if (count > 0) {
+            postingList.encode(docIds, weights, count);
+        }
+        return postingList;
+    }
+
+    @FunctionalInterface
+    interface PostingConsumer {
+        void accept(long docId, int weight);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void forEach(PostingConsumer consumer) {
+        int[] position = {0};
+        long docId = 0;
+        for (int i = 0; i < size; i++) {
+            docId += readVarLong(data, position);
+            int weight = (int) readVarLong(data, position);
+            consumer.accept(docId, weight);
+        }
+    }
+
+    /**
+     * Adds the given document or replaces its weight when it is already present.
+     */
+    void upsert(long docId, int weight) {
+        long[] docIds = new long[size + 1];
+        int[] weights = new int[size + 1];
+        int count = decode(docIds, weights);
+        int index = Arrays.binarySearch(docIds, 0, count, docId);
+        if (index >= 0) {
+            weights[index] = weight;
+        } else {
+            int insertAt = -index - 1;
+            System.arraycopy(docIds, insertAt, docIds, insertAt + 1, count - insertAt);
+            System.arraycopy(weights, insertAt, weights, insertAt + 1, count - insertAt);
+            docIds[insertAt] = docId;
+            weights[insertAt] = weight;
+            count++;
+        }
+        encode(docIds, weights, count);
+    }
+
+    void remove(long docId) {
+        long[] docIds = new long[size];
+        int[] weights = new int[size];
+        int count = decode(docIds, weights);
+        int index = Arrays.binarySearch(docIds, 0, count, docId);
+        if (index < 0) {
+            return;
+        }
+        System.arraycopy(docIds, index + 1, docIds, index, count - index - 1);
+        System.arraycopy(weights, index + 1, weights, index, count - index - 1);
+        encode(docIds, weights, count - 1);
+    }
+
+    private int decode(long[] docIds, int[] weights) {
+        int[] count = {0};
+        forEach((docId, weight) -> {
+            docIds[count[0]] = docId;
+            weights[count[0]] = weight;
+            count[0]++;
+        });
+        return count[0];
+    }
+
+    private void encode(long[] docIds, int[] weights, int count) {
+        // Each pair needs at most 10 bytes for the delta and 5 for the weight.
+        byte[] buffer = new byte[count * 15];
+        int position = 0;
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            position = writeVarLong(buffer, position, docIds[i] - previous);
+            position = writeVarLong(buffer, position, weights[i]);
+            previous = docIds[i];
+        }
+        this.data = Arrays.copyOf(buffer, position);
+        this.size = count;
+    }
+
+    private static int writeVarLong(byte[] buffer, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return position;
+    }
+
+    private static long readVarLong(byte[] buffer, int[] position) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -0,0 +1,334 @@
+package com.ctzaf.dreamshops.service.search;
+
+import com.ctzaf.dreamshops.model.Product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over the name, brand and description of products.
+ * Terms are kept in a sorted dictionary so the last query token can be expanded as a prefix,
+ * and tokens without an exact or prefix match fall back to terms within a small edit distance.
+ * Matches are ranked with BM25 over field-weighted term frequencies.
+ */
+public class ProductSearchIndex {
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final int NAME_WEIGHT = 3;
+    private static final int BRAND_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    private static final double K1 = 1.2;
+    private static final double PREFIX_FACTOR = 0.8;
+    private static final double FUZZY_FACTOR = 0.5;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    private final NavigableMap<String, PostingList> postings = new TreeMap<>();
+    private final Map<Long, Set<String>> termsByProduct = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public record SearchHit(long productId, double score) {
+    }
+
+    public ProductSearchIndex() {
+    }
+
+    private ProductSearchIndex(Map<String, PostingList> postings, Map<Long, Set<String>> termsByProduct) {
+        this.postings.putAll(postings);
+        this.termsByProduct.putAll(termsByProduct);
+    }
+
+    /**
+     * Returns a builder that loads many products at once and encodes every posting list
+     * a single time, instead of re-encoding a list for each product added to it.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Adds the given product to the index, replacing any previously indexed version of it.
+     */
+    public void index(Product product) {
+        Map<String, Integer> weights = termWeights(product);
+
+        lock.writeLock().lock();
+        try {
+            removeTerms(product.getId());
+            weights.forEach((term, weight) ->
+                    postings.computeIfAbsent(term, t -> new PostingList()).upsert(product.getId(), weight));
+            termsByProduct.put(product.getId(), weights.keySet());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeTerms(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return termsByProduct.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Runs a ranked query against the index.
+     *
+     * @param query the free text query
+     * @param limit the maximum number of hits to return
+     * @return the best matching products, highest score first
+     */
+    public List<SearchHit> search(String query, int limit) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty() || limit < 1) {
+            return List.of();
+        }
+        Map<Long, Double> scores = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            int documentCount = termsByProduct.size();
+            for (int i = 0; i < tokens.size(); i++) {
+                Map<Long, Double> tokenScores = scoreToken(tokens.get(i), i == tokens.size() - 1, documentCount);
+                tokenScores.forEach((productId, score) -> scores.merge(productId, score, Double::sum));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return topHits(scores, limit);
+    }
+
+    /**
+     * Scores a single query token. A document matched through several expansions of the
+     * token only keeps its best score, so a short prefix does not outrank an exact match.
+     */
+    private Map<Long, Double> scoreToken(String token, boolean allowPrefix, int documentCount) {
+        Map<Long, Double> tokenScores = new HashMap<>();
+        PostingList exact = postings.get(token);
+        if (exact != null) {
+            accumulate(tokenScores, exact, 1.0, documentCount);
+        }
+        boolean expanded = false;
+        if (allowPrefix) {
+            int expansions = 0;
+            for (Map.Entry<String, PostingList> entry : postings.subMap(token, false, token + Character.MAX_VALUE, false).entrySet()) {
+                if (expansions++ == MAX_PREFIX_EXPANSIONS) {
+                    break;
+                }
+                accumulate(tokenScores, entry.getValue(), PREFIX_FACTOR, documentCount);
+                expanded = true;
+            }
+        }
+        if (exact == null && !expanded) {
+            int maxEdits = token.length() <= 4 ? 1 : 2;
+            String first = token.substring(0, 1);
+            for (Map.Entry<String, PostingList> entry : postings.subMap(first, true, first + Character.MAX_VALUE, false).entrySet()) {
+                String term = entry.getKey();
+                if (Math.abs(term.length() - token.length()) > maxEdits) {
+                    continue;
+                }
+                int distance = editDistance(token, term, maxEdits);
+                if (distance <= maxEdits) {
+                    accumulate(tokenScores, entry.getValue(), FUZZY_FACTOR / distance, documentCount);
+                }
+            }
+        }
+        return tokenScores;
+    }
+
+    private static void accumulate(Map<Long, Double> scores, PostingList postingList, double factor, int documentCount) {
+        int documentFrequency = postingList.size();
+        double idf = Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+        postingList.forEach((productId, weight) -> {
+            double score = factor * idf * (weight * (K1 + 1)) / (weight + K1);
+            scores.merge(productId, score, Math::max);
+        });
+    }
+
+    private static List<SearchHit> topHits(Map<Long, Double> scores, int limit) {
+        Comparator<SearchHit> byScore = Comparator.comparingDouble(SearchHit::score)
+                .thenComparing(SearchHit::productId, Comparator.reverseOrder());
+        PriorityQueue<SearchHit> best = new PriorityQueue<>(limit + 1, byScore);
+        scores.forEach((productId, score) -> {
+            best.add(new SearchHit(productId, score));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        });
+        List<SearchHit> hits = new ArrayList<>(best);
+        hits.sort(byScore.reversed());
+        return hits;
+    }
+
+    private void removeTerms(Long productId) {
+        Set<String> terms = termsByProduct.remove(productId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            PostingList postingList = postings.get(term);
+            if (postingList != null) {
+                postingList.remove(productId);
+                if (postingList.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    private static Map<String, Integer> termWeights(Product product) {
+        Map<String, Integer> weights = new HashMap<>();
+        addTerms(weights, product.getName(), NAME_WEIGHT);
+        addTerms(weights, product.getBrand(), BRAND_WEIGHT);
+        addTerms(weights, product.getDescription(), DESCRIPTION_WEIGHT);
+        return weights;
+    }
+
+    private static void addTerms(Map<String, Integer> weights, String text, int weight) {
+        tokenize(text).forEach(term -> weights.merge(term, weight, Integer::sum));
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Optimal string alignment distance between the two words, giving up as soon as
+     * every alignment exceeds {@code maxEdits}.
+     */
+    static int editDistance(String a, String b, int maxEdits) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            d[i][0] = i;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            d[0][j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            int rowMin = Integer.MAX_VALUE;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+                }
+                rowMin = Math.min(rowMin, d[i][j]);
+            }
+            if (rowMin > maxEdits) {
+                return rowMin;
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+
+    /**
+     * Collects the postings of each term while products are added and encodes them on
+     * {@link #build()}. Products read in ascending id order are appended without sorting.
+     * Not thread safe; each product should be added once.
+     */
+    public static final class Builder {
+
+        private final Map<String, TermPostings> postings = new HashMap<>();
+        private final Map<Long, Set<String>> termsByProduct = new HashMap<>();
+
+        private Builder() {
+        }
+
+        public Builder add(Product product) {
+            Map<String, Integer> weights = termWeights(product);
+            weights.forEach((term, weight) ->
+                    postings.computeIfAbsent(term, t -> new TermPostings()).add(product.getId(), weight));
+            termsByProduct.put(product.getId(), weights.keySet());
+            return this;
+        }
+
+        public ProductSearchIndex build() {
+            Map<String, PostingList> encoded = new HashMap<>(postings.size() * 2);
+            postings.forEach((term, termPostings) -> encoded.put(term, termPostings.toPostingList()));
+            return new ProductSearchIndex(encoded, termsByProduct);
+        }
+    }
+
+    private static final class TermPostings {
+
+        private long[] docIds = new long[4];
+        private int[] weights = new int[4];
+        private int count;
+        private boolean sorted = true;
+
+        void add(long docId, int weight) {
+            if (count == docIds.length) {
+                docIds = Arrays.copyOf(docIds, count * 2);
+                weights = Arrays.copyOf(weights, count * 2);
+            }
+            if (count > 0 && docId <= docIds[count - 1]) {
+                sorted = false;
+            }
+            docIds[count] = docId;
+            weights[count] = weight;
+            count++;
+        }
+
+        PostingList toPostingList() {
+            if (!sorted) {
+                sortByDocId();
+            }
+            return PostingList.of(docIds, weights, count);
+        }
+
+        private void sortByDocId() {
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingLong(i -> docIds[i]));
+            long[] sortedIds = new long[count];
+            int[] sortedWeights = new int[count];
+            int size = 0;
+            for (int i : order) {
+                // A document added twice keeps the weight it was added with last.
+                if (size > 0 && sortedIds[size - 1] == docIds[i]) {
+                    sortedWeights[size - 1] = weights[i];
+                    continue;
+                }
+                sortedIds[size] = docIds[i];
+                sortedWeights[size] = weights[i];
+                size++;
+            }
+            docIds = sortedIds;
+            weights = sortedWeights;
+            count = size;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.ctzaf.dreamshops.service.search;
+
+import com.ctzaf.dreamshops.model.Product;
+import com.ctzaf.dreamshops.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+public class ProductSearchService implements IProductSearchService, ApplicationListener<ApplicationReadyEvent> {
+
+    private static final int MAX_RESULTS = 100;
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private final ProductRepository productRepository;
+    private final Object mutationLock = new Object();
+    private volatile ProductSearchIndex index = new ProductSearchIndex();
+    // Mutations applied while a rebuild is reading the catalog, replayed onto the rebuilt index.
+    private List<Consumer<ProductSearchIndex>> mutationsDuringRebuild;
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        rebuild();
+    }
+
+    /**
+     * Searches the name, brand and description of all products.
+     *
+     * @param query the free text query, the last word of which may be incomplete
+     * @param limit the maximum number of products to return
+     * @return the matching products, best match first
+     */
+    @Override
+    public List<Product> search(String query, int limit) {
+        List<Long> productIds = index.search(query, Math.min(limit, MAX_RESULTS))
+                .stream()
+                .map(ProductSearchIndex.SearchHit::productId)
+                .toList();
+        if (productIds.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Product> products = productRepository.findAllById(productIds)
+                .stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        return productIds.stream().map(products::get).filter(Objects::nonNull).toList();
+    }
+
+    @Override
+    public void index(Product product) {
+        apply(current -> current.index(product));
+    }
+
+    @Override
+    public void remove(Long productId) {
+        apply(current -> current.remove(productId));
+    }
+
+    private void apply(Consumer<ProductSearchIndex> mutation) {
+        synchronized (mutationLock) {
+            mutation.accept(index);
+            if (mutationsDuringRebuild != null) {
+                mutationsDuringRebuild.add(mutation);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the index from the database, reading the catalog in keyset pages,
+     * and swaps it in once complete. Products indexed or removed while the catalog is
+     * being read are replayed onto the rebuilt index before the swap, so they are not lost.
+     */
+    @Override
+    public synchronized void rebuild() {
+        synchronized (mutationLock) {
+            mutationsDuringRebuild = new ArrayList<>();
+        }
+        try {
+            ProductSearchIndex.Builder builder = ProductSearchIndex.builder();
+            ScrollPosition position = ScrollPosition.keyset();
+            Window<Product> window;
+            do {
+                window = productRepository.findAllBy(position, Limit.of(REBUILD_BATCH_SIZE), Sort.by("id"));
+                window.forEach(builder::add);
+                if (!window.isEmpty()) {
+                    position = window.positionAt(window.size() - 1);
+                }
+            } while (window.hasNext());
+            ProductSearchIndex rebuilt = builder.build();
+            synchronized (mutationLock) {
+                mutationsDuringRebuild.forEach(mutation -> mutation.accept(rebuilt));
+                index = rebuilt;
+            }
+        } finally {
+            synchronized (mutationLock) {
+                mutationsDuringRebuild = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.ctzaf.dreamshops.service.search;
+
+import com.ctzaf.dreamshops.enums.SuggestionType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Prefix trie of weighted suggestions in which every node caches the top suggestions of its
+ * subtree, so a lookup only walks the prefix. Writers are serialized and replace node state
+ * with new immutable arrays, letting readers traverse the trie without locking.
+ */
+final class SuggestionTrie {
+
+    record Suggestion(String text, SuggestionType type, long weight) {
+    }
+
+    private record Edges(char[] labels, Node[] children) {
+        static final Edges EMPTY = new Edges(new char[0], new Node[0]);
+
+        Node child(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            return index < 0 ? null : children[index];
+        }
+
+        Edges with(char label, Node child) {
+            int index = -Arrays.binarySearch(labels, label) - 1;
+            char[] newLabels = new char[labels.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            newLabels[index] = label;
+            newChildren[index] = child;
+            System.arraycopy(labels, index, newLabels, index + 1, labels.length - index);
+            System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+            return new Edges(newLabels, newChildren);
+        }
+
+        Edges without(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            if (index < 0) {
+                return this;
+            }
+            char[] newLabels = new char[labels.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(labels, 0, newLabels, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(labels, index + 1, newLabels, index, labels.length - index - 1);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+            return new Edges(newLabels, newChildren);
+        }
+    }
+
+    private static final class Node {
+        private volatile Edges edges = Edges.EMPTY;
+        private final Suggestion[] terminals = new Suggestion[SuggestionType.values().length];
+        private volatile Suggestion[] top = new Suggestion[0];
+
+        boolean isEmpty() {
+            return edges.labels().length == 0 && Arrays.stream(terminals).allMatch(Objects::isNull);
+        }
+    }
+
+    private static final Comparator<Suggestion> BY_WEIGHT = Comparator.comparingLong(Suggestion::weight).reversed()
+            .thenComparing(Suggestion::text);
+
+    private final int topK;
+    private final Node root = new Node();
+
+    SuggestionTrie(int topK) {
+        this.topK = topK;
+    }
+
+    /**
+     * Sets the weight of a suggestion, removing it when the weight is not positive,
+     * and refreshes the cached top suggestions of every node on its path. Nodes left
+     * without suggestions or children are unlinked from their parent.
+     */
+    synchronized void put(String key, String text, SuggestionType type, long weight) {
+        List<Node> path = new ArrayList<>(key.length() + 1);
+        Node node = root;
+        path.add(node);
+        for (int i = 0; i < key.length(); i++) {
+            char label = key.charAt(i);
+            Node child = node.edges.child(label);
+            if (child == null) {
+                if (weight <= 0) {
+                    return;
+                }
+                child = new Node();
+                node.edges = node.edges.with(label, child);
+            }
+            node = child;
+            path.add(node);
+        }
+        node.terminals[type.ordinal()] = weight > 0 ? new Suggestion(text, type, weight) : null;
+        for (int i = path.size() - 1; i >= 0; i--) {
+            Node current = path.get(i);
+            if (i > 0 && current.isEmpty()) {
+                Node parent = path.get(i - 1);
+                parent.edges = parent.edges.without(key.charAt(i - 1));
+            } else {
+                refreshTop(current);
+            }
+        }
+    }
+
+    /**
+     * Returns the best suggestions for the given prefix, highest weight first.
+     */
+    List<Suggestion> top(String prefix, int limit) {
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.edges.child(prefix.charAt(i));
+        }
+        if (node == null || limit < 1) {
+            return List.of();
+        }
+        Suggestion[] top = node.top;
+        return List.of(Arrays.copyOf(top, Math.min(limit, top.length)));
+    }
+
+    private void refreshTop(Node node) {
+        List<Suggestion> candidates = new ArrayList<>();
+        for (Suggestion terminal : node.terminals) {
+            if (terminal != null) {
+                candidates.add(terminal);
+            }
+        }
+        for (Node child : node.edges.children()) {
+            candidates.addAll(Arrays.asList(child.top));
+        }
+        candidates.sort(BY_WEIGHT);
+        node.top = candidates.subList(0, Math.min(topK, candidates.size())).toArray(Suggestion[]::new);
+    }
+}
@@ -15,4 +15,6 @@ public interface IUserService {
     UserDto convertUserToDto(User user);
 
     User getAuthenticatedUser();
+
+    Long getAuthenticatedUserId();
 }
@@ -3,12 +3,14 @@ package com.ctzaf.dreamshops.service.user;
 import com.ctzaf.dreamshops.dto.UserDto;
 import com.ctzaf.dreamshops.exceptions.AlreadyExistsException;
 import com.ctzaf.dreamshops.exceptions.ResourceNotFoundException;
+import com.ctzaf.dreamshops.mapper.UserMapper;
 import com.ctzaf.dreamshops.model.User;
 import com.ctzaf.dreamshops.repository.UserRepository;
 import com.ctzaf.dreamshops.request.CreateUserRequest;
 import com.ctzaf.dreamshops.request.UserUpdateRequest;
+import com.ctzaf.dreamshops.security.user.ShopUserDetails;
+import com.ctzaf.dreamshops.service.cart.ICartService;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -21,8 +23,9 @@ import java.util.Optional;
 public class UserService implements IUserService{
 
     private final UserRepository userRepository;
-    private final ModelMapper modelMapper;
+    private final UserMapper userMapper;
     private final PasswordEncoder passwordEncoder;
+    private final ICartService cartService;
 
     @Override
     public User getUserById(Long userId) {
@@ -58,11 +61,12 @@ public class UserService implements IUserService{
         userRepository.findById(userId).ifPresentOrElse(userRepository::delete, () -> {
             throw new ResourceNotFoundException("User not found");
         });
+        cartService.evictCartId(userId);
     }
 
     @Override
     public UserDto convertUserToDto(User user) {
-        return modelMapper.map(user, UserDto.class);
+        return userMapper.toDto(user);
     }
 
     @Override
@@ -71,4 +75,17 @@ public class UserService implements IUserService{
         String email = authentication.getName();
         return userRepository.findByEmail(email);
     }
+
+    /**
+     * Returns the id of the authenticated user from the principal set by the token filter,
+     * falling back to a lookup by email for any other kind of principal.
+     */
+    @Override
+    public Long getAuthenticatedUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication.getPrincipal() instanceof ShopUserDetails userDetails) {
+            return userDetails.getId();
+        }
+        return getAuthenticatedUser().getId();
+    }
 }
@@ -0,0 +1,106 @@
+package com.ctzaf.dreamshops.benchmark;
+
+import com.ctzaf.dreamshops.model.Cart;
+import com.ctzaf.dreamshops.model.CartItem;
+import com.ctzaf.dreamshops.model.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Compares maintaining the cart total by re-summing every line after each change, as the cart
+ * used to, with applying only the changed line's delta. Each invocation builds a cart of
+ * {@code lines} items one add at a time and then updates the quantity of every line once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CartTotalBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int lines;
+
+    private List<Product> products;
+
+    @Setup
+    public void setUp() {
+        products = IntStream.range(0, lines)
+                .mapToObj(i -> {
+                    Product product = new Product();
+                    product.setId((long) i);
+                    product.setPrice(BigDecimal.valueOf(100 + i, 2));
+                    return product;
+                })
+                .toList();
+    }
+
+    @Benchmark
+    public BigDecimal fullRecomputation() {
+        Set<CartItem> items = new HashSet<>();
+        BigDecimal total = BigDecimal.ZERO;
+        for (Product product : products) {
+            items.add(newItem(product));
+            total = sum(items);
+        }
+        for (CartItem item : items) {
+            item.setQuantity(item.getQuantity() + 1);
+            item.setTotalPrice();
+            total = sum(items);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public BigDecimal incrementalMaintenance() {
+        Cart cart = new Cart();
+        for (Product product : products) {
+            cart.addItem(newItem(product));
+        }
+        for (CartItem item : cart.getItems()) {
+            cart.updateItem(item, item.getQuantity() + 1, item.getUnitPrice());
+        }
+        return cart.getTotalAmount();
+    }
+
+    private static CartItem newItem(Product product) {
+        CartItem item = new CartItem();
+        item.setProduct(product);
+        item.setQuantity(1);
+        item.setUnitPrice(product.getPrice());
+        item.setTotalPrice();
+        return item;
+    }
+
+    private static BigDecimal sum(Set<CartItem> items) {
+        return items.stream()
+                .map(item -> item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CartTotalBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
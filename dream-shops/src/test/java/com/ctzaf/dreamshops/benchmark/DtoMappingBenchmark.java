@@ -0,0 +1,112 @@
+package com.ctzaf.dreamshops.benchmark;
+
+import com.ctzaf.dreamshops.dto.OrderDto;
+import com.ctzaf.dreamshops.dto.ProductDto;
+import com.ctzaf.dreamshops.enums.OrderStatus;
+import com.ctzaf.dreamshops.mapper.OrderMapper;
+import com.ctzaf.dreamshops.mapper.OrderMapperImpl;
+import com.ctzaf.dreamshops.mapper.ProductMapper;
+import com.ctzaf.dreamshops.mapper.ProductMapperImpl;
+import com.ctzaf.dreamshops.model.Category;
+import com.ctzaf.dreamshops.model.Order;
+import com.ctzaf.dreamshops.model.OrderItem;
+import com.ctzaf.dreamshops.model.Product;
+import com.ctzaf.dreamshops.model.User;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the generated dto mappers with the reflective ModelMapper they replaced.
+ * Run the main method from the IDE, or with the test classpath, to get throughput
+ * together with the allocation rate per operation reported by the GC profiler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DtoMappingBenchmark {
+
+    private ModelMapper modelMapper;
+    private ProductMapper productMapper;
+    private OrderMapper orderMapper;
+    private Product product;
+    private Order order;
+
+    @Setup
+    public void setUp() {
+        modelMapper = new ModelMapper();
+        modelMapper.typeMap(Product.class, ProductDto.class)
+                .addMappings(mapper -> mapper.skip(ProductDto::setImages));
+        productMapper = new ProductMapperImpl();
+        orderMapper = new OrderMapperImpl();
+
+        Category category = new Category("Electronics");
+        category.setId(1L);
+        product = new Product("TV", "Samsung", new BigDecimal("499.99"), 10, "4K television", category);
+        product.setId(1L);
+
+        User user = new User();
+        user.setId(1L);
+        order = new Order();
+        order.setOrderId(1L);
+        order.setUser(user);
+        order.setOrderDate(LocalDate.now());
+        order.setOrderStatus(OrderStatus.PENDING);
+        order.setTotalAmount(new BigDecimal("999.98"));
+        Set<OrderItem> items = new HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            OrderItem item = new OrderItem(order, product, 2, product.getPrice());
+            item.setId((long) i);
+            items.add(item);
+        }
+        order.setOrderItems(items);
+    }
+
+    @Benchmark
+    public ProductDto productWithModelMapper() {
+        return modelMapper.map(product, ProductDto.class);
+    }
+
+    @Benchmark
+    public ProductDto productWithGeneratedMapper() {
+        return productMapper.toDto(product);
+    }
+
+    @Benchmark
+    public OrderDto orderWithModelMapper() {
+        return modelMapper.map(order, OrderDto.class);
+    }
+
+    @Benchmark
+    public OrderDto orderWithGeneratedMapper() {
+        return orderMapper.toDto(order);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(DtoMappingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,32 @@
+package com.ctzaf.dreamshops.controller;
+
+import com.ctzaf.dreamshops.exceptions.InvalidIdempotencyKeyException;
+import com.ctzaf.dreamshops.response.ApiResponse;
+import com.ctzaf.dreamshops.service.order.IAsyncOrderService;
+import com.ctzaf.dreamshops.service.order.IIdempotentOrderService;
+import com.ctzaf.dreamshops.service.order.IOrderService;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.http.HttpStatus.UNPROCESSABLE_ENTITY;
+
+class OrderControllerTest {
+
+    private final IIdempotentOrderService idempotentOrderService = mock(IIdempotentOrderService.class);
+    private final OrderController orderController = new OrderController(mock(IOrderService.class),
+            mock(IAsyncOrderService.class), idempotentOrderService);
+
+    @Test
+    void keyReusedByAnotherUserIsUnprocessable() {
+        when(idempotentOrderService.placeOrder(2L, "checkout-1"))
+                .thenThrow(new InvalidIdempotencyKeyException("Idempotency key was already used for another request"));
+
+        ResponseEntity<ApiResponse> response = orderController.createOrder(2L, "checkout-1");
+
+        assertEquals(UNPROCESSABLE_ENTITY, response.getStatusCode());
+        assertEquals("Invalid Idempotency Key", response.getBody().getMessage());
+    }
+}
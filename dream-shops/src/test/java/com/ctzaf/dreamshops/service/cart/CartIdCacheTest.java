@@ -0,0 +1,60 @@
+package com.ctzaf.dreamshops.service.cart;
+
+import com.ctzaf.dreamshops.support.TestTransactionManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CartIdCacheTest {
+
+    private final CartIdCache cache = new CartIdCache(100, Duration.ofMinutes(30));
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private Long cartIdOf(Long userId, long cartId) {
+        return cache.get(userId, key -> {
+            loads.incrementAndGet();
+            return cartId;
+        });
+    }
+
+    @Test
+    void loadsEachUserOnce() {
+        assertEquals(10L, cartIdOf(1L, 10));
+        assertEquals(10L, cartIdOf(1L, 11));
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void invalidationAfterCommitDropsAnIdCachedAgainDuringTheTransaction() {
+        cartIdOf(1L, 10);
+
+        new TransactionTemplate(new TestTransactionManager()).executeWithoutResult(status -> {
+            cache.invalidateUser(1L);
+            // A concurrent lookup still sees the cart until the delete commits.
+            cartIdOf(1L, 10);
+        });
+
+        assertEquals(20L, cartIdOf(1L, 20));
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void invalidatesEveryUserOfTheGivenCarts() {
+        cartIdOf(1L, 10);
+        cartIdOf(2L, 20);
+        cartIdOf(3L, 30);
+
+        cache.invalidateCarts(List.of(10L, 30L));
+
+        assertEquals(20L, cartIdOf(2L, 99));
+        assertEquals(11L, cartIdOf(1L, 11));
+        assertEquals(31L, cartIdOf(3L, 31));
+        assertEquals(5, loads.get());
+    }
+}
@@ -0,0 +1,79 @@
+package com.ctzaf.dreamshops.service.cart;
+
+import com.ctzaf.dreamshops.model.Cart;
+import com.ctzaf.dreamshops.repository.CartItemRepository;
+import com.ctzaf.dreamshops.repository.CartRepository;
+import com.ctzaf.dreamshops.service.product.IProductService;
+import com.ctzaf.dreamshops.support.TestTransactionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CartItemServiceTest {
+
+    private final TestTransactionManager transactionManager = new TestTransactionManager();
+    private final CartRepository cartRepository = mock(CartRepository.class);
+    private final ICartService cartService = mock(ICartService.class);
+    // A long window, so only the flushes the tests trigger write anything.
+    private final PendingQuantityUpdates pendingUpdates = new PendingQuantityUpdates(Duration.ofMinutes(1));
+    private final CartItemService cartItemService = new CartItemService(mock(CartItemRepository.class),
+            cartRepository, mock(IProductService.class), cartService,
+            new CartMutationDispatcher(new OptimisticRetryExecutor(transactionManager, 3, Duration.ZERO, Duration.ZERO),
+                    false, 0, 1, 1, Duration.ofSeconds(1)),
+            pendingUpdates);
+
+    @BeforeEach
+    void setUp() {
+        Cart cart = new Cart();
+        cart.setId(1L);
+        when(cartService.getCart(1L)).thenReturn(cart);
+        pendingUpdates.put(1L, 10L, 3, cartId -> { });
+    }
+
+    @AfterEach
+    void shutdown() {
+        pendingUpdates.shutdown();
+    }
+
+    @Test
+    void flushInRolledBackTransactionRestoresPendingUpdates() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            cartItemService.flushPendingUpdates(1L);
+            assertEquals(Map.of(), pendingUpdates.get(1L));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(Map.of(10L, 3), pendingUpdates.get(1L));
+    }
+
+    @Test
+    void flushInCommittedTransactionKeepsUpdatesWritten() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                cartItemService.flushPendingUpdates(1L));
+
+        assertEquals(Map.of(), pendingUpdates.get(1L));
+    }
+
+    @Test
+    void failedFlushRestoresPendingUpdatesBehindNewerOnes() {
+        when(cartRepository.save(any(Cart.class))).thenAnswer(invocation -> {
+            pendingUpdates.put(1L, 10L, 4, cartId -> { });
+            pendingUpdates.put(1L, 11L, 1, cartId -> { });
+            throw new IllegalStateException("write failed");
+        });
+
+        assertThrows(IllegalStateException.class, () -> cartItemService.flushPendingUpdates(1L));
+
+        assertEquals(Map.of(10L, 4, 11L, 1), pendingUpdates.get(1L));
+    }
+}
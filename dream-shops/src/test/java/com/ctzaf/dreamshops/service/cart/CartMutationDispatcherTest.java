@@ -0,0 +1,95 @@
+package com.ctzaf.dreamshops.service.cart;
+
+import com.ctzaf.dreamshops.support.TestTransactionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CartMutationDispatcherTest {
+
+    private final TestTransactionManager transactionManager = new TestTransactionManager();
+    private final CartMutationDispatcher dispatcher = new CartMutationDispatcher(
+            new OptimisticRetryExecutor(transactionManager, 1, Duration.ZERO, Duration.ZERO),
+            true, 1, 16, 16, Duration.ofSeconds(5));
+    private final List<String> applied = Collections.synchronizedList(new ArrayList<>());
+
+    @AfterEach
+    void shutdown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void failedCoalescedBatchIsAppliedAgainOneByOne() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread blocker = submit(1L, () -> {
+            started.countDown();
+            await(release);
+        }, new CompletableFuture<>());
+        started.await(5, TimeUnit.SECONDS);
+
+        List<CompletableFuture<Void>> results = List.of(new CompletableFuture<>(), new CompletableFuture<>(), new CompletableFuture<>());
+        awaitQueued(submit(2L, () -> applied.add("first"), results.get(0)));
+        awaitQueued(submit(2L, () -> {
+            throw new IllegalArgumentException("bad update");
+        }, results.get(1)));
+        awaitQueued(submit(2L, () -> applied.add("third"), results.get(2)));
+        release.countDown();
+        blocker.join();
+
+        results.get(0).get(5, TimeUnit.SECONDS);
+        results.get(2).get(5, TimeUnit.SECONDS);
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> results.get(1).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, failure.getCause());
+        // The first update ran in the rolled back batch and again on its own.
+        assertEquals(List.of("first", "first", "third"), applied);
+    }
+
+    @Test
+    void rejectsMutationsOnceShutDown() {
+        dispatcher.shutdown();
+
+        assertThrows(IllegalStateException.class, () -> dispatcher.execute(1L, () -> applied.add("late")));
+        assertEquals(List.of(), applied);
+    }
+
+    private Thread submit(Long cartId, Runnable mutation, CompletableFuture<Void> result) {
+        Thread thread = new Thread(() -> {
+            try {
+                dispatcher.execute(cartId, mutation);
+                result.complete(null);
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    // A caller waits for its result once its command is queued behind the blocked worker.
+    private static void awaitQueued(Thread caller) {
+        while (caller.getState() != Thread.State.TIMED_WAITING) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
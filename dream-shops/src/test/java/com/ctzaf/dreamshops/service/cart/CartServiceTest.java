@@ -0,0 +1,66 @@
+package com.ctzaf.dreamshops.service.cart;
+
+import com.ctzaf.dreamshops.exceptions.ResourceNotFoundException;
+import com.ctzaf.dreamshops.mapper.CartMapper;
+import com.ctzaf.dreamshops.model.Cart;
+import com.ctzaf.dreamshops.repository.CartItemRepository;
+import com.ctzaf.dreamshops.repository.CartRepository;
+import com.ctzaf.dreamshops.repository.UserRepository;
+import com.ctzaf.dreamshops.service.product.IProductService;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CartServiceTest {
+
+    private final CartRepository cartRepository = mock(CartRepository.class);
+    private final CartIdCache cartIdCache = new CartIdCache(100, Duration.ofMinutes(30));
+    private final CartService cartService = new CartService(cartRepository, mock(CartItemRepository.class),
+            mock(CartMapper.class), mock(IProductService.class), mock(UserRepository.class), cartIdCache,
+            new PendingQuantityUpdates(Duration.ZERO));
+
+    private static Cart cart(long id) {
+        Cart cart = new Cart();
+        cart.setId(id);
+        return cart;
+    }
+
+    @Test
+    void retriesOnceWithAFreshCartWhenTheCachedCartWasDeleted() {
+        cartIdCache.get(1L, key -> 10L);
+        when(cartRepository.existsById(10L)).thenReturn(false);
+        when(cartRepository.findByUserId(1L)).thenReturn(cart(20));
+        List<Long> attempts = new ArrayList<>();
+
+        cartService.updateCartOfUser(1L, cartId -> {
+            attempts.add(cartId);
+            if (cartId == 10L) {
+                throw new ResourceNotFoundException("Cart not found");
+            }
+        });
+
+        assertEquals(List.of(10L, 20L), attempts);
+        assertEquals(20L, cartService.getOrCreateCartId(1L));
+    }
+
+    @Test
+    void doesNotRetryWhenTheCartStillExists() {
+        cartIdCache.get(1L, key -> 10L);
+        when(cartRepository.existsById(10L)).thenReturn(true);
+        List<Long> attempts = new ArrayList<>();
+
+        assertThrows(ResourceNotFoundException.class, () -> cartService.updateCartOfUser(1L, cartId -> {
+            attempts.add(cartId);
+            throw new ResourceNotFoundException("Product not found");
+        }));
+
+        assertEquals(List.of(10L), attempts);
+    }
+}
@@ -0,0 +1,75 @@
+package com.ctzaf.dreamshops.service.cart;
+
+import com.ctzaf.dreamshops.support.TestTransactionManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OptimisticRetryExecutorTest {
+
+    private final TestTransactionManager transactionManager = new TestTransactionManager();
+    private final OptimisticRetryExecutor executor =
+            new OptimisticRetryExecutor(transactionManager, 3, Duration.ZERO, Duration.ZERO);
+
+    @Test
+    void retriesConflictsUntilAnAttemptCommits() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = executor.execute(() -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new OptimisticLockingFailureException("conflict");
+            }
+            return "done";
+        });
+
+        assertEquals("done", result);
+        assertEquals(3, attempts.get());
+        assertEquals(1, transactionManager.commits.get());
+        assertEquals(2, transactionManager.rollbacks.get());
+    }
+
+    @Test
+    void rethrowsTheConflictOnceAttemptsAreExhausted() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(OptimisticLockingFailureException.class, () -> executor.run(() -> {
+            attempts.incrementAndGet();
+            throw new OptimisticLockingFailureException("conflict");
+        }));
+
+        assertEquals(3, attempts.get());
+        assertEquals(0, transactionManager.commits.get());
+    }
+
+    @Test
+    void doesNotRetryOtherFailures() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(IllegalStateException.class, () -> executor.run(() -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("broken");
+        }));
+
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void joinsAnActiveTransactionWithoutRetrying() {
+        AtomicInteger attempts = new AtomicInteger();
+        TransactionTemplate outer = new TransactionTemplate(transactionManager);
+
+        assertThrows(OptimisticLockingFailureException.class, () -> outer.executeWithoutResult(status ->
+                executor.run(() -> {
+                    attempts.incrementAndGet();
+                    throw new OptimisticLockingFailureException("conflict");
+                })));
+
+        assertEquals(1, attempts.get());
+    }
+}
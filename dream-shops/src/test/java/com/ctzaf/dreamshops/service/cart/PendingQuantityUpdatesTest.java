@@ -0,0 +1,69 @@
+package com.ctzaf.dreamshops.service.cart;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PendingQuantityUpdatesTest {
+
+    private final PendingQuantityUpdates updates = new PendingQuantityUpdates(Duration.ofMillis(200));
+    private final LinkedBlockingQueue<Map<Long, Integer>> flushed = new LinkedBlockingQueue<>();
+    private final Consumer<Long> flush = cartId -> flushed.add(updates.drain(cartId));
+
+    @AfterEach
+    void shutdown() {
+        updates.shutdown();
+    }
+
+    @Test
+    void burstOfUpdatesIsFlushedOnceWithFinalQuantities() throws InterruptedException {
+        updates.put(1L, 10L, 1, flush);
+        updates.put(1L, 10L, 2, flush);
+        updates.put(1L, 11L, 5, flush);
+
+        assertEquals(Map.of(10L, 2, 11L, 5), flushed.poll(5, TimeUnit.SECONDS));
+        assertNull(flushed.poll(300, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void drainRemovesPendingUpdates() {
+        updates.put(1L, 10L, 3, flush);
+
+        assertEquals(Map.of(10L, 3), updates.drain(1L));
+        assertFalse(updates.contains(1L, 10L));
+        assertEquals(Map.of(), updates.drain(1L));
+    }
+
+    @Test
+    void restoreKeepsNewerQuantitiesAndFlushesAgain() throws InterruptedException {
+        updates.put(1L, 10L, 3, flush);
+        Map<Long, Integer> drained = updates.drain(1L);
+        updates.put(1L, 10L, 4, flush);
+
+        updates.restore(1L, Map.of(10L, 3, 11L, 2), flush);
+
+        assertEquals(Map.of(10L, 4, 11L, 2), flushed.poll(5, TimeUnit.SECONDS));
+        assertEquals(Map.of(10L, 3), drained);
+    }
+
+    @Test
+    void restoreSchedulesFlushWhenNothingIsPending() throws InterruptedException {
+        updates.put(1L, 10L, 3, flush);
+        Map<Long, Integer> drained = updates.drain(1L);
+        // The flush scheduled by the first update finds nothing left.
+        assertEquals(Map.of(), flushed.poll(5, TimeUnit.SECONDS));
+
+        updates.restore(1L, drained, flush);
+
+        assertEquals(Map.of(10L, 3), flushed.poll(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,83 @@
+package com.ctzaf.dreamshops.service.inventory;
+
+import com.ctzaf.dreamshops.exceptions.InsufficientInventoryException;
+import com.ctzaf.dreamshops.exceptions.ResourceNotFoundException;
+import com.ctzaf.dreamshops.repository.ProductRepository;
+import com.ctzaf.dreamshops.service.product.ProductCache;
+import com.ctzaf.dreamshops.support.TestTransactionManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InMemoryInventoryServiceTest {
+
+    private final TestTransactionManager transactionManager = new TestTransactionManager();
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final InMemoryInventoryService inventoryService = new InMemoryInventoryService(
+            productRepository, mock(ProductCache.class), jdbcTemplate, transactionManager);
+
+    @BeforeEach
+    void setUp() {
+        when(productRepository.findAvailableInventoryById(1L)).thenReturn(Optional.of(5L));
+        when(productRepository.findAvailableInventoryById(2L)).thenReturn(Optional.of(1L));
+        when(productRepository.findAvailableInventoryById(3L)).thenReturn(Optional.empty());
+    }
+
+    private void reserve(Map<Long, Integer> quantities, boolean commit) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            inventoryService.reserve(quantities);
+            if (!commit) {
+                status.setRollbackOnly();
+            }
+        });
+    }
+
+    @Test
+    void productThatIsShortReturnsWhatWasTakenFromTheOthers() {
+        assertThrows(InsufficientInventoryException.class, () -> reserve(Map.of(1L, 3, 2L, 2), true));
+
+        reserve(Map.of(1L, 5), true);
+        assertThrows(InsufficientInventoryException.class, () -> reserve(Map.of(1L, 1), true));
+    }
+
+    @Test
+    void rolledBackReservationIsReturned() {
+        reserve(Map.of(1L, 5), false);
+
+        reserve(Map.of(1L, 5), true);
+        assertThrows(InsufficientInventoryException.class, () -> reserve(Map.of(1L, 1), true));
+        // Both reservations were recorded; the rolled back one went away with its transaction.
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void evictionReloadsTheCounter() {
+        reserve(Map.of(1L, 5), true);
+
+        inventoryService.evict(1L);
+
+        reserve(Map.of(1L, 5), true);
+        verify(productRepository, times(2)).findAvailableInventoryById(1L);
+    }
+
+    @Test
+    void unknownProductIsNotRemembered() {
+        assertThrows(ResourceNotFoundException.class, () -> reserve(Map.of(3L, 1), true));
+        assertThrows(ResourceNotFoundException.class, () -> reserve(Map.of(3L, 1), true));
+
+        verify(productRepository, times(2)).findAvailableInventoryById(3L);
+    }
+}
@@ -0,0 +1,59 @@
+package com.ctzaf.dreamshops.service.inventory;
+
+import com.ctzaf.dreamshops.exceptions.InsufficientInventoryException;
+import com.ctzaf.dreamshops.service.product.ProductCache;
+import com.ctzaf.dreamshops.support.TestTransactionManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InventoryServiceTest {
+
+    private final TestTransactionManager transactionManager = new TestTransactionManager();
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final ProductCache productCache = mock(ProductCache.class);
+    private final InventoryService inventoryService = new InventoryService(jdbcTemplate, productCache);
+
+    private void reserveInTransaction(Map<Long, Integer> quantities) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> inventoryService.reserve(quantities));
+    }
+
+    @Test
+    void productThatIsShortFailsTheReservation() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 0});
+
+        InsufficientInventoryException e = assertThrows(InsufficientInventoryException.class,
+                () -> reserveInTransaction(Map.of(2L, 5, 1L, 1)));
+
+        // Products are decremented in id order, so the second count belongs to product 2.
+        assertEquals("Not enough inventory for product 2", e.getMessage());
+        assertEquals(1, transactionManager.rollbacks.get());
+        verify(productCache, never()).invalidateAll(any());
+    }
+
+    @Test
+    void committedReservationInvalidatesCachedProducts() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 1});
+
+        reserveInTransaction(Map.of(2L, 5, 1L, 1));
+
+        verify(jdbcTemplate).batchUpdate(anyString(), argThat((List<Object[]> arguments) ->
+                arguments.size() == 2 && arguments.get(0)[1].equals(1L) && arguments.get(1)[1].equals(2L)));
+        verify(productCache).invalidateAll(Set.of(1L, 2L));
+    }
+}
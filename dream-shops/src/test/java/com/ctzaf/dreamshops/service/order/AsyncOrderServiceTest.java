@@ -0,0 +1,110 @@
+package com.ctzaf.dreamshops.service.order;
+
+import com.ctzaf.dreamshops.dto.OrderHandleDto;
+import com.ctzaf.dreamshops.enums.OrderRequestStatus;
+import com.ctzaf.dreamshops.exceptions.InsufficientInventoryException;
+import com.ctzaf.dreamshops.model.Order;
+import com.ctzaf.dreamshops.support.TestTransactionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AsyncOrderServiceTest {
+
+    private final IOrderService orderService = mock(IOrderService.class);
+    private final TestTransactionManager transactionManager = new TestTransactionManager();
+    private final AsyncOrderService asyncOrderService = new AsyncOrderService(orderService, transactionManager,
+            true, 100, 50, Duration.ofHours(1), Duration.ofSeconds(5));
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private static Order order(long id) {
+        Order order = new Order();
+        order.setOrderId(id);
+        return order;
+    }
+
+    @BeforeEach
+    void setUp() {
+        // The order of user 1 holds the worker, so the orders queued behind it form one batch.
+        when(orderService.placeOrder(1L)).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return order(100);
+        });
+        when(orderService.placeOrder(2L)).thenReturn(order(200));
+        when(orderService.placeOrder(3L)).thenThrow(new InsufficientInventoryException("Not enough inventory for product 7"));
+        when(orderService.placeOrder(4L)).thenReturn(order(400));
+        asyncOrderService.start();
+    }
+
+    @AfterEach
+    void stop() {
+        release.countDown();
+        asyncOrderService.stop();
+    }
+
+    private OrderHandleDto awaitOutcome(OrderHandleDto handle) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        OrderHandleDto status = asyncOrderService.getOrderStatus(handle.getHandle());
+        while (status.getStatus() == OrderRequestStatus.QUEUED && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            status = asyncOrderService.getOrderStatus(handle.getHandle());
+        }
+        return status;
+    }
+
+    @Test
+    void failedBatchIsPlacedAgainOneByOne() throws InterruptedException {
+        asyncOrderService.submitOrder(1L);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        OrderHandleDto second = asyncOrderService.submitOrder(2L);
+        OrderHandleDto third = asyncOrderService.submitOrder(3L);
+        OrderHandleDto fourth = asyncOrderService.submitOrder(4L);
+
+        release.countDown();
+
+        assertEquals(new OrderHandleDto(second.getHandle(), OrderRequestStatus.COMPLETED, 200L, null), awaitOutcome(second));
+        assertEquals(new OrderHandleDto(third.getHandle(), OrderRequestStatus.FAILED, null,
+                "Not enough inventory for product 7"), awaitOutcome(third));
+        assertEquals(new OrderHandleDto(fourth.getHandle(), OrderRequestStatus.COMPLETED, 400L, null), awaitOutcome(fourth));
+        // The order of user 2 was placed in the rolled back batch and again on its own.
+        verify(orderService, times(2)).placeOrder(2L);
+        verify(orderService, times(1)).placeOrder(4L);
+        assertEquals(1, transactionManager.rollbacks.get());
+    }
+
+    @Test
+    void stopFinishesTheBatchInProgressAndFailsQueuedOrders() throws InterruptedException {
+        OrderHandleDto first = asyncOrderService.submitOrder(1L);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        OrderHandleDto queued = asyncOrderService.submitOrder(2L);
+        Thread stopping = new Thread(asyncOrderService::stop);
+        stopping.start();
+        while (asyncOrderService.isRunning()) {
+            Thread.onSpinWait();
+        }
+
+        release.countDown();
+        stopping.join();
+
+        assertEquals(OrderRequestStatus.COMPLETED, asyncOrderService.getOrderStatus(first.getHandle()).getStatus());
+        assertEquals(new OrderHandleDto(queued.getHandle(), OrderRequestStatus.FAILED, null,
+                "Order placement is shutting down"), asyncOrderService.getOrderStatus(queued.getHandle()));
+        assertFalse(asyncOrderService.isRunning());
+        assertThrows(IllegalStateException.class, () -> asyncOrderService.submitOrder(3L));
+    }
+}
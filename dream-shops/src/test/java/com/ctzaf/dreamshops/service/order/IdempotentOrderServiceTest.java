@@ -0,0 +1,79 @@
+package com.ctzaf.dreamshops.service.order;
+
+import com.ctzaf.dreamshops.exceptions.InvalidIdempotencyKeyException;
+import com.ctzaf.dreamshops.model.IdempotencyRecord;
+import com.ctzaf.dreamshops.model.Order;
+import com.ctzaf.dreamshops.repository.IdempotencyRecordRepository;
+import com.ctzaf.dreamshops.repository.OrderRepository;
+import com.ctzaf.dreamshops.support.TestTransactionManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IdempotentOrderServiceTest {
+
+    private final IOrderService orderService = mock(IOrderService.class);
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final IdempotencyRecordRepository recordRepository = mock(IdempotencyRecordRepository.class);
+    private final IdempotentOrderService idempotentOrderService = new IdempotentOrderService(orderService,
+            orderRepository, recordRepository, new TestTransactionManager(), Duration.ofDays(1), 100);
+    private final Order order = new Order();
+
+    @BeforeEach
+    void setUp() {
+        order.setOrderId(100L);
+        when(recordRepository.findByIdempotencyKey(any())).thenReturn(Optional.empty());
+        when(recordRepository.saveAndFlush(any(IdempotencyRecord.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(orderService.placeOrder(1L)).thenReturn(order);
+        when(orderRepository.findById(100L)).thenReturn(Optional.of(order));
+    }
+
+    @Test
+    void replayedKeyReturnsTheFirstOrder() {
+        assertSame(order, idempotentOrderService.placeOrder(1L, "checkout-1"));
+        assertSame(order, idempotentOrderService.placeOrder(1L, "checkout-1"));
+
+        verify(orderService, times(1)).placeOrder(1L);
+    }
+
+    @Test
+    void keyReusedByAnotherUserIsRejected() {
+        idempotentOrderService.placeOrder(1L, "checkout-1");
+
+        assertThrows(InvalidIdempotencyKeyException.class, () -> idempotentOrderService.placeOrder(2L, "checkout-1"));
+        verify(orderService, never()).placeOrder(2L);
+    }
+
+    @Test
+    void keyRecordedBeforeARestartIsReplayedFromTheTable() {
+        IdempotencyRecord record = new IdempotencyRecord("checkout-1", 1L, Instant.now());
+        record.setOrderId(100L);
+        when(recordRepository.findByIdempotencyKey("checkout-1")).thenReturn(Optional.of(record));
+
+        assertSame(order, idempotentOrderService.placeOrder(1L, "checkout-1"));
+        assertThrows(InvalidIdempotencyKeyException.class, () -> idempotentOrderService.placeOrder(2L, "checkout-1"));
+        verify(orderService, never()).placeOrder(anyLong());
+    }
+
+    @Test
+    void requestsWithoutKeyAreNotDeduplicated() {
+        idempotentOrderService.placeOrder(1L, null);
+        idempotentOrderService.placeOrder(1L, null);
+
+        verify(orderService, times(2)).placeOrder(1L);
+        verify(recordRepository, never()).saveAndFlush(any());
+    }
+}
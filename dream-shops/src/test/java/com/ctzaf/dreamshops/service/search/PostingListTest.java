@@ -0,0 +1,67 @@
+package com.ctzaf.dreamshops.service.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PostingListTest {
+
+    @Test
+    void roundTripsIdsAndWeightsAcrossVarintBoundaries() {
+        long[] docIds = {0, 1, 127, 128, 16_383, 16_384, Integer.MAX_VALUE, Long.MAX_VALUE};
+        int[] weights = {0, 1, 127, 128, 300, 70_000, Integer.MAX_VALUE, 3};
+
+        PostingList postingList = PostingList.of(docIds, weights, docIds.length);
+
+        assertEquals(docIds.length, postingList.size());
+        List<long[]> decoded = entries(postingList);
+        for (int i = 0; i < docIds.length; i++) {
+            assertEquals(docIds[i], decoded.get(i)[0]);
+            assertEquals(weights[i], decoded.get(i)[1]);
+        }
+    }
+
+    @Test
+    void upsertKeepsDocumentsSortedAndReplacesWeights() {
+        PostingList postingList = new PostingList();
+        postingList.upsert(500, 1);
+        postingList.upsert(3, 2);
+        postingList.upsert(200_000, 3);
+        postingList.upsert(3, 7);
+
+        List<long[]> decoded = entries(postingList);
+        assertEquals(3, decoded.size());
+        assertEquals(3, decoded.get(0)[0]);
+        assertEquals(7, decoded.get(0)[1]);
+        assertEquals(500, decoded.get(1)[0]);
+        assertEquals(200_000, decoded.get(2)[0]);
+    }
+
+    @Test
+    void removeDropsOnlyTheGivenDocument() {
+        PostingList postingList = PostingList.of(new long[]{10, 20, 30}, new int[]{1, 2, 3}, 3);
+
+        postingList.remove(20);
+        postingList.remove(99);
+
+        List<long[]> decoded = entries(postingList);
+        assertEquals(2, decoded.size());
+        assertEquals(10, decoded.get(0)[0]);
+        assertEquals(30, decoded.get(1)[0]);
+        assertEquals(3, decoded.get(1)[1]);
+
+        postingList.remove(10);
+        postingList.remove(30);
+        assertTrue(postingList.isEmpty());
+    }
+
+    private static List<long[]> entries(PostingList postingList) {
+        List<long[]> entries = new ArrayList<>();
+        postingList.forEach((docId, weight) -> entries.add(new long[]{docId, weight}));
+        return entries;
+    }
+}
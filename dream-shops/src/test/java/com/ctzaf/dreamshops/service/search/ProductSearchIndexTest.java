@@ -0,0 +1,83 @@
+package com.ctzaf.dreamshops.service.search;
+
+import com.ctzaf.dreamshops.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductSearchIndexTest {
+
+    private static Product product(long id, String name, String brand, String description) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setBrand(brand);
+        product.setDescription(description);
+        return product;
+    }
+
+    private static final List<Product> PRODUCTS = List.of(
+            product(1, "Phone case", "Acme", "Fits the latest laptop sleeve"),
+            product(2, "Laptop", "Acme", "Thin and light"),
+            product(3, "Laptop stand", "Stando", "Aluminium stand for notebooks"),
+            product(4, "Keyboard", "Keyco", "Mechanical keyboard"));
+
+    private static ProductSearchIndex catalog() {
+        ProductSearchIndex.Builder builder = ProductSearchIndex.builder();
+        PRODUCTS.forEach(builder::add);
+        return builder.build();
+    }
+
+    private static List<Long> ids(List<ProductSearchIndex.SearchHit> hits) {
+        return hits.stream().map(ProductSearchIndex.SearchHit::productId).toList();
+    }
+
+    @Test
+    void nameMatchesRankAboveDescriptionMatches() {
+        assertEquals(List.of(2L, 3L, 1L), ids(catalog().search("laptop", 10)));
+    }
+
+    @Test
+    void lastTokenMatchesAsPrefix() {
+        assertEquals(List.of(4L), ids(catalog().search("keyb", 10)));
+        assertTrue(catalog().search("keyb extra", 10).isEmpty());
+    }
+
+    @Test
+    void misspelledTokensFallBackToFuzzyMatches() {
+        List<ProductSearchIndex.SearchHit> fuzzy = catalog().search("keybaord", 10);
+        List<ProductSearchIndex.SearchHit> exact = catalog().search("keyboard", 10);
+
+        assertEquals(List.of(4L), ids(fuzzy));
+        assertTrue(fuzzy.get(0).score() < exact.get(0).score());
+    }
+
+    @Test
+    void builtIndexMatchesIncrementallyBuiltIndex() {
+        ProductSearchIndex incremental = new ProductSearchIndex();
+        List.of(PRODUCTS.get(2), PRODUCTS.get(0), PRODUCTS.get(3), PRODUCTS.get(1)).forEach(incremental::index);
+
+        assertEquals(catalog().search("acme laptop", 10), incremental.search("acme laptop", 10));
+        assertEquals(4, incremental.size());
+    }
+
+    @Test
+    void removedProductsNoLongerMatch() {
+        ProductSearchIndex index = catalog();
+        index.remove(2L);
+
+        assertEquals(List.of(3L, 1L), ids(index.search("laptop", 10)));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void editDistanceCountsTranspositionsAsOneEdit() {
+        assertEquals(0, ProductSearchIndex.editDistance("stand", "stand", 2));
+        assertEquals(1, ProductSearchIndex.editDistance("stnad", "stand", 2));
+        assertEquals(1, ProductSearchIndex.editDistance("stan", "stand", 2));
+        assertTrue(ProductSearchIndex.editDistance("phone", "stand", 2) > 2);
+    }
+}
@@ -0,0 +1,55 @@
+package com.ctzaf.dreamshops.support;
+
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Transaction manager without a resource behind it, for unit tests of code that opens
+ * transactions or registers synchronizations. Counts commits and rollbacks of the outermost
+ * transactions; inner calls join the transaction already active on the thread.
+ */
+public class TestTransactionManager extends AbstractPlatformTransactionManager {
+
+    public final AtomicInteger commits = new AtomicInteger();
+    public final AtomicInteger rollbacks = new AtomicInteger();
+
+    private static final class Transaction {
+        private final boolean existing;
+
+        Transaction(boolean existing) {
+            this.existing = existing;
+        }
+    }
+
+    @Override
+    protected Object doGetTransaction() {
+        return new Transaction(TransactionSynchronizationManager.isActualTransactionActive());
+    }
+
+    @Override
+    protected boolean isExistingTransaction(Object transaction) {
+        return ((Transaction) transaction).existing;
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+    }
+
+    @Override
+    protected void doCommit(DefaultTransactionStatus status) {
+        commits.incrementAndGet();
+    }
+
+    @Override
+    protected void doRollback(DefaultTransactionStatus status) {
+        rollbacks.incrementAndGet();
+    }
+
+    @Override
+    protected void doSetRollbackOnly(DefaultTransactionStatus status) {
+    }
+}